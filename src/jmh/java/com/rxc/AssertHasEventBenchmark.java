@@ -0,0 +1,55 @@
+package com.rxc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.rxc.matchers.NotificationMatchers.isValue;
+
+/**
+ * Measures {@link TestSubscriber#assertHasEvent(org.hamcrest.Matcher)} over a million recorded events when the matching event is the last one,
+ * with and without {@link TestSubscriberBuilder#indexEvents()}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AssertHasEventBenchmark {
+    private static final int EVENTS = 1000000;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private TestSubscriber<Integer> testSubscriber;
+
+    @Setup
+    public void setUp(){
+        final TestSubscriberBuilder<Integer> builder = new TestSubscriberBuilder<>();
+        if(indexed){
+            builder.indexEvents();
+        }
+        testSubscriber = builder.build();
+
+        for(int i = 0; i < EVENTS; i++){
+            testSubscriber.onNext(i);
+        }
+        testSubscriber.onCompleted();
+    }
+
+    @Benchmark
+    public void assertHasLastEvent(){
+        testSubscriber.assertHasEvent(isValue(EVENTS - 1));
+    }
+}
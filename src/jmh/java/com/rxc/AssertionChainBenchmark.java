@@ -0,0 +1,68 @@
+package com.rxc;
+
+import org.hamcrest.Matcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rx.Notification;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.rxc.matchers.NotificationMatchers.isCompletion;
+import static com.rxc.matchers.NotificationMatchers.isValue;
+import static com.rxc.matchers.NotificationMatchers.isValueThat;
+import static org.hamcrest.CoreMatchers.anything;
+
+/**
+ * Measures walking an {@link TestSubscriber.AssertionChain} over a million recorded events, asserting against every event and skipping to the last one
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AssertionChainBenchmark {
+    private static final int EVENTS = 1000000;
+
+    private final Matcher<Notification> anyValue = isValueThat(anything());
+    private final Matcher<Notification> lastValue = isValue(EVENTS - 1);
+    private final Matcher<Notification> completion = isCompletion();
+
+    private TestSubscriber<Integer> testSubscriber;
+
+    @Setup
+    public void setUp(){
+        testSubscriber = new TestSubscriber<>();
+
+        for(int i = 0; i < EVENTS; i++){
+            testSubscriber.onNext(i);
+        }
+        testSubscriber.onCompleted();
+    }
+
+    @Benchmark
+    public void assertEveryEvent(){
+        final TestSubscriber<Integer>.AssertionChain chain = testSubscriber.beginAssertionChain();
+        for(int i = 0; i < EVENTS; i++){
+            chain.assertNextEvent(anyValue);
+        }
+        chain.assertNextEvent(completion)
+             .assertNoRemainingEvents();
+    }
+
+    @Benchmark
+    public void ignoreUntilLastEvent(){
+        testSubscriber.beginAssertionChain()
+                      .ignoreUntilEvent(lastValue)
+                      .assertNextEvent(completion)
+                      .assertNoRemainingEvents();
+    }
+}
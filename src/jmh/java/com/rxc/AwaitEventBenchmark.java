@@ -0,0 +1,72 @@
+package com.rxc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.rxc.matchers.NotificationMatchers.isValue;
+
+/**
+ * <p>Measures how long {@link TestSubscriber#awaitEvent(org.hamcrest.Matcher)} takes to release the waiting thread once the awaited event
+ * is recorded on another thread</p>
+ * <p>Each invocation hands a value to a producer thread and waits for it to come back as an onNext event, so the score is the full round trip</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AwaitEventBenchmark {
+    private final SynchronousQueue<Integer> handOff = new SynchronousQueue<>();
+
+    private TestSubscriber<Integer> testSubscriber;
+    private Thread producer;
+    private int next = 0;
+
+    @Setup(Level.Iteration)
+    public void setUp(){
+        // Indexed so the check of already recorded events stays constant as events build up over the iteration
+        testSubscriber = new TestSubscriberBuilder<Integer>().indexEvents().build();
+        final TestSubscriber<Integer> subscriber = testSubscriber;
+
+        producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true){
+                        subscriber.onNext(handOff.take());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        producer.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        producer.interrupt();
+        producer.join();
+    }
+
+    @Benchmark
+    public void awaitEvent() throws InterruptedException {
+        final Integer value = next++;
+        handOff.put(value);
+        testSubscriber.awaitEvent(isValue(value));
+    }
+}
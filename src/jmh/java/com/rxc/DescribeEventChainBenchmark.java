@@ -0,0 +1,55 @@
+package com.rxc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.rxc.matchers.NotificationMatchers.isValue;
+
+/**
+ * Measures how long a failing assertion takes to describe its event chain, by failing {@link TestSubscriber#assertHasEvent(org.hamcrest.Matcher)}
+ * against subscribers holding different numbers of events
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DescribeEventChainBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int events;
+
+    private TestSubscriber<String> testSubscriber;
+
+    @Setup
+    public void setUp(){
+        testSubscriber = new TestSubscriber<>();
+
+        for(int i = 0; i < events; i++){
+            testSubscriber.onNext("Glork " + i);
+        }
+        testSubscriber.onCompleted();
+    }
+
+    @Benchmark
+    public String describeFailure(){
+        try {
+            testSubscriber.assertHasEvent(isValue("spoon"));
+        } catch (AssertionError e) {
+            return e.getMessage();
+        }
+
+        throw new IllegalStateException("The assertion was expected to fail");
+    }
+}
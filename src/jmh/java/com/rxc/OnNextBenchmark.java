@@ -0,0 +1,57 @@
+package com.rxc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures how many onNext events a {@link TestSubscriber} can record per second, from one producer and from several at once</p>
+ * <p>Recording every event for a whole iteration would exhaust the heap, so events are either retained up to a limit or only counted</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class OnNextBenchmark {
+    private static final Integer VALUE = 42;
+
+    @Param({"retainLast", "countOnly"})
+    public String recording;
+
+    private TestSubscriber<Integer> testSubscriber;
+
+    @Setup(Level.Iteration)
+    public void setUp(){
+        if(recording.equals("countOnly")){
+            testSubscriber = new TestSubscriberBuilder<Integer>().countOnly().build();
+        } else {
+            testSubscriber = new TestSubscriberBuilder<Integer>().retainLast(1 << 16).build();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void singleProducer(){
+        testSubscriber.onNext(VALUE);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void multiProducer(){
+        testSubscriber.onNext(VALUE);
+    }
+}
@@ -0,0 +1,99 @@
+package com.rxc;
+
+import org.hamcrest.Matcher;
+import rx.Notification;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A single caller of {@link TestSubscriber#awaitEvent(Matcher, int, long, TimeUnit)}, or a single subscription to
+ * {@link TestSubscriber#whenEvent(Matcher, int, long, TimeUnit)}, waiting for a number of matching events that are offered to it as they are recorded</p>
+ * <p>This is only used for events that are not kept in the log, kept events are waited on with a {@link SequenceBarrier} instead</p>
+ */
+final class AwaitContext implements VirtualClock.Condition {
+    private final Matcher<Notification> matcher;
+    private final Thread waiter;
+    private final Runnable onSatisfied;
+
+    private final AtomicInteger remaining;
+
+    /** The first sequence that is counted when offered, earlier events are counted by {@link #countRecorded(int)} instead */
+    private volatile long from = 0;
+
+    /**
+     * Creates a context that the creating thread waits on with {@link #await(long)}
+     */
+    AwaitContext(final Matcher<Notification> matcher, final int times){
+        this(matcher, times, null);
+    }
+
+    /**
+     * @param onSatisfied Run on the recording thread once an offered event satisfies the context, instead of waking a waiting thread.
+     *                    Events counted by {@link #countRecorded(int)} do not run it
+     */
+    AwaitContext(final Matcher<Notification> matcher, final int times, final Runnable onSatisfied){
+        this.matcher = matcher;
+        this.onSatisfied = onSatisfied;
+        waiter = onSatisfied == null ? Thread.currentThread() : null;
+
+        remaining = new AtomicInteger(times);
+    }
+
+    Matcher<Notification> getMatcher(){
+        return matcher;
+    }
+
+    /**
+     * Sets the first sequence that is counted when offered, this must be set before the context is registered
+     */
+    void startAt(final long sequence){
+        from = sequence;
+    }
+
+    void handleEvent(final long sequence, final Notification notification){
+        if(sequence >= from && remaining.get() > 0 && matcher.matches(notification) && remaining.decrementAndGet() == 0){
+            if(onSatisfied != null){
+                onSatisfied.run();
+            } else {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    /**
+     * Counts matching events that were recorded before its first sequence towards the wait
+     * @param matches How many of those events matched
+     */
+    void countRecorded(final int matches){
+        remaining.addAndGet(-matches);
+    }
+
+    @Override
+    public boolean isSatisfied() {
+        return remaining.get() <= 0;
+    }
+
+    /**
+     * Holds the thread that created the context until enough matching events have been offered
+     * @param deadline The {@link System#nanoTime()} to give up at
+     * @return false if the wait timed out
+     * @throws InterruptedException When the thread is interrupted
+     */
+    boolean await(final long deadline) throws InterruptedException {
+        while (remaining.get() > 0){
+            final long timeLeft = deadline - System.nanoTime();
+            if(timeLeft <= 0){
+                return false;
+            }
+
+            LockSupport.parkNanos(this, timeLeft);
+            if(Thread.interrupted()){
+                throw new InterruptedException();
+            }
+        }
+
+        return true;
+    }
+}
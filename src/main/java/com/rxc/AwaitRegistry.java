@@ -0,0 +1,67 @@
+package com.rxc;
+
+import com.rxc.matchers.KindedMatcher;
+import org.hamcrest.Matcher;
+import rx.Notification;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Every {@link AwaitContext} currently waiting on a {@link TestSubscriber}, bucketed by the kind of notification it waits for</p>
+ * <p>Any number of threads may register, unregister and dispatch at once. An event is only offered to the waiters
+ * whose matcher can match its kind, matchers that could match any kind are offered every event</p>
+ */
+final class AwaitRegistry {
+    private final Map<Notification.Kind, Set<AwaitContext>> waitersByKind = new EnumMap<>(Notification.Kind.class);
+    private final Set<AwaitContext> anyKindWaiters = newWaiterSet();
+
+    AwaitRegistry(){
+        for(final Notification.Kind kind : Notification.Kind.values()){
+            waitersByKind.put(kind, newWaiterSet());
+        }
+    }
+
+    private static Set<AwaitContext> newWaiterSet(){
+        return Collections.newSetFromMap(new ConcurrentHashMap<AwaitContext, Boolean>());
+    }
+
+    private Set<AwaitContext> waitersFor(final AwaitContext waiter){
+        final Notification.Kind kind = kindOf(waiter.getMatcher());
+        return kind == null ? anyKindWaiters : waitersByKind.get(kind);
+    }
+
+    void register(final AwaitContext waiter){
+        waitersFor(waiter).add(waiter);
+    }
+
+    void unregister(final AwaitContext waiter){
+        waitersFor(waiter).remove(waiter);
+    }
+
+    /**
+     * Offers a recorded event to every waiter that could match it
+     * @param sequence The position the event was recorded at
+     * @param notification The recorded event
+     */
+    void dispatch(final long sequence, final Notification notification){
+        for(final AwaitContext waiter : waitersByKind.get(notification.getKind())){
+            waiter.handleEvent(sequence, notification);
+        }
+
+        for(final AwaitContext waiter : anyKindWaiters){
+            waiter.handleEvent(sequence, notification);
+        }
+    }
+
+    /**
+     * @param matcher The matcher to inspect
+     * @return The only kind of notification the matcher can match, or null when it could match any kind
+     */
+    static Notification.Kind kindOf(final Matcher<?> matcher){
+        return matcher instanceof KindedMatcher ? ((KindedMatcher) matcher).getKind() : null;
+    }
+}
@@ -0,0 +1,96 @@
+package com.rxc;
+
+import rx.Notification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Finds where a chain of events first diverges from a known good baseline</p>
+ * <p>Events are compared in a single pass without allocating. OnNext events are equal when their values are equal, and OnError events
+ * are equal when their throwables are of the same class with the same message, since a throwable read back from a trace is never the
+ * same instance as the one that was recorded</p>
+ */
+final class BaselineComparison {
+    static final long NO_DIVERGENCE = -1;
+
+    private BaselineComparison(){
+    }
+
+    /**
+     * @param actual The events to check
+     * @param actualSize How many of the actual events to check, starting from the first
+     * @param baseline The events expected
+     * @return The index of the first event that differs, the length of the shorter chain when one is a prefix of the other,
+     * or {@link #NO_DIVERGENCE} when both chains are equal
+     */
+    static long firstDivergence(final RecordedEvents<?> actual, final long actualSize, final RecordedEvents<?> baseline){
+        return firstDivergence(actual, actualSize, baseline, 0);
+    }
+
+    /**
+     * @param from How many events at the start of both chains are already known to be equal
+     * @see #firstDivergence(RecordedEvents, long, RecordedEvents)
+     */
+    static long firstDivergence(final RecordedEvents<?> actual, final long actualSize, final RecordedEvents<?> baseline, final long from){
+        final long baselineSize = baseline.size();
+        final long common = Math.min(actualSize, baselineSize);
+        for(long i = from; i < common; i++){
+            if(!same(actual.get(i), baseline.get(i))){
+                return i;
+            }
+        }
+
+        return actualSize == baselineSize ? NO_DIVERGENCE : common;
+    }
+
+    static boolean same(final Notification<?> actual, final Notification<?> expected){
+        if(actual == expected){
+            return true;
+        } else if(actual == null || expected == null || actual.getKind() != expected.getKind()){
+            return false;
+        }
+
+        switch (actual.getKind()){
+            case OnNext:
+                return equal(actual.getValue(), expected.getValue());
+            case OnError:
+                final Throwable actualError = actual.getThrowable();
+                final Throwable expectedError = expected.getThrowable();
+                if(actualError == null || expectedError == null){
+                    return actualError == expectedError;
+                }
+                return actualError.getClass() == expectedError.getClass() && equal(actualError.getMessage(), expectedError.getMessage());
+            default:
+                return true;
+        }
+    }
+
+    private static boolean equal(final Object actual, final Object expected){
+        return actual == null ? expected == null : actual.equals(expected);
+    }
+
+    /**
+     * @return The events of a list, so that it can be compared like any other recorded events. The list is copied once, so that
+     * looking up an event takes constant time whatever kind of list it is
+     */
+    static <T> RecordedEvents<T> of(final List<Notification<T>> list){
+        final List<Notification<T>> events = new ArrayList<>(list);
+        return new RecordedEvents<T>() {
+            @Override
+            public long size() {
+                return events.size();
+            }
+
+            @Override
+            public long firstRetained() {
+                return 0;
+            }
+
+            @Override
+            public Notification<T> get(final long index) {
+                return events.get((int) index);
+            }
+        };
+    }
+}
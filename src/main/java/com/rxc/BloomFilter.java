@@ -0,0 +1,57 @@
+package com.rxc;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>A set of hashes that answers "definitely not added" or "possibly added" in a fixed amount of memory</p>
+ * <p>The filter is sized for an expected number of distinct hashes at a 1% false positive rate, about 10 bits for each. Any number of
+ * threads may add at once</p>
+ */
+final class BloomFilter {
+    private static final int HASHES = 7;
+
+    private final AtomicLongArray bits;
+    private final long size;
+
+    /**
+     * @param expected How many distinct hashes are expected to be added
+     */
+    BloomFilter(final long expected){
+        final long wanted = (long) Math.ceil(Math.max(1, expected) * -Math.log(0.01) / (Math.log(2) * Math.log(2)));
+        final int words = (int) Math.min(Integer.MAX_VALUE - 8, (wanted + 63) / 64);
+        bits = new AtomicLongArray(words);
+        size = (long) words * 64;
+    }
+
+    /**
+     * Adds a hash to the filter
+     * @param hash A well mixed 64 bit hash, see {@link HyperLogLog#mix(long)}
+     * @return false if the hash was possibly added before, true if it definitely was not. Two threads adding the same hash at once can
+     * both be told it was not
+     */
+    boolean add(final long hash){
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32);
+
+        boolean added = false;
+        for(int i = 1; i <= HASHES; i++){
+            final long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % size;
+            final int word = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+
+            long current;
+            do {
+                current = bits.get(word);
+                if((current & mask) != 0){
+                    break;
+                }
+                if(bits.compareAndSet(word, current, current | mask)){
+                    added = true;
+                    break;
+                }
+            } while (true);
+        }
+
+        return added;
+    }
+}
@@ -0,0 +1,47 @@
+package com.rxc;
+
+/**
+ * <p>Keeps the earliest exception thrown by a function given to the {@link TestSubscriberBuilder} while values were recorded</p>
+ * <p>An exception thrown while recording would escape into the {@link rx.Observable} delivering the event, so it is kept here and reported
+ * by the assertions that depend on the function instead. Values are identified by their sequence, the position they were recorded at</p>
+ */
+final class CallbackFailure {
+    static final long NO_EVENT = -1;
+
+    private long count = 0;
+    private long sequence = Long.MAX_VALUE;
+    private RuntimeException exception = null;
+
+    /**
+     * @param sequence The position of the value the function threw on
+     * @param exception What the function threw
+     */
+    synchronized void record(final long sequence, final RuntimeException exception){
+        count++;
+        if(sequence < this.sequence){
+            this.sequence = sequence;
+            this.exception = exception;
+        }
+    }
+
+    /**
+     * @return How many values the function threw on
+     */
+    synchronized long count(){
+        return count;
+    }
+
+    /**
+     * @return The sequence of the first value the function threw on, or {@link #NO_EVENT} when it never threw
+     */
+    synchronized long sequence(){
+        return exception == null ? NO_EVENT : sequence;
+    }
+
+    /**
+     * @return What the function first threw, or null when it never threw
+     */
+    synchronized RuntimeException exception(){
+        return exception;
+    }
+}
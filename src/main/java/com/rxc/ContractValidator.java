@@ -0,0 +1,193 @@
+package com.rxc;
+
+import rx.Notification;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Checks the {@link rx.Observable} contract inline as each event is recorded, in constant time per event</p>
+ * <p>Only the first occurrence and a count of each kind of {@link Violation} are kept, so checking never grows with the number of events.
+ * Events are identified by their sequence, the position they were recorded at</p>
+ */
+final class ContractValidator {
+    static final long NO_EVENT = -1;
+
+    /**
+     * The ways an {@link rx.Observable} can break its contract
+     */
+    enum Violation {
+        OVERLAPPING_DELIVERY("Received an event on one thread while another thread was still delivering an event"),
+        EVENT_AFTER_ERROR("Received more events after an onError event"),
+        EVENT_AFTER_COMPLETION("Received more events after an onCompleted event"),
+        EXCESS_ON_NEXT("Received more onNext events than were requested");
+
+        private final String description;
+
+        Violation(final String description){
+            this.description = description;
+        }
+
+        String getDescription(){
+            return description;
+        }
+    }
+
+    static final int OWNER = 0;
+    static final int REENTRANT = 1;
+    static final int OVERLAPPING = 2;
+
+    private static final long NO_TERMINAL = Long.MAX_VALUE;
+
+    private final AtomicReference<Thread> deliveringThread = new AtomicReference<>();
+
+    private final AtomicLong terminalSequence = new AtomicLong(NO_TERMINAL);
+    private volatile Notification.Kind terminalKind = null;
+    private final AtomicLong lastSequence = new AtomicLong(NO_EVENT);
+
+    private final AtomicLong requested;
+    private final AtomicLong delivered = new AtomicLong();
+
+    private final AtomicLongArray firstViolations = new AtomicLongArray(Violation.values().length);
+    private final AtomicLongArray violationCounts = new AtomicLongArray(Violation.values().length);
+
+    /**
+     * @param initialDemand How many onNext events may be delivered before any more are requested, Long.MAX_VALUE for unbounded demand
+     */
+    ContractValidator(final long initialDemand){
+        requested = new AtomicLong(initialDemand);
+
+        for(int i = 0; i < firstViolations.length(); i++){
+            firstViolations.set(i, NO_TERMINAL);
+        }
+    }
+
+    /**
+     * Marks the current thread as delivering an event, must be followed by {@link #exit(int)}
+     * @return {@link #OWNER}, {@link #REENTRANT} when the thread is already delivering, or {@link #OVERLAPPING} when another thread is
+     */
+    int enter(){
+        final Thread current = Thread.currentThread();
+        if(deliveringThread.compareAndSet(null, current)){
+            return OWNER;
+        }
+
+        return deliveringThread.get() == current ? REENTRANT : OVERLAPPING;
+    }
+
+    void exit(final int delivery){
+        if(delivery == OWNER){
+            deliveringThread.set(null);
+        }
+    }
+
+    /**
+     * Checks an event against the contract
+     * @param sequence The position the event was recorded at
+     * @param kind The kind of the event
+     * @param delivery The result of {@link #enter()} for this event
+     */
+    void validate(final long sequence, final Notification.Kind kind, final int delivery){
+        if(delivery == OVERLAPPING){
+            violated(Violation.OVERLAPPING_DELIVERY, sequence);
+        }
+
+        if(kind == Notification.Kind.OnNext && delivered.incrementAndGet() > requested.get()){
+            violated(Violation.EXCESS_ON_NEXT, sequence);
+        }
+
+        // Every event publishes its own sequence before looking for a terminal event, and every terminal event publishes itself
+        // before looking for later events, so whichever of the two is validated last sees the other
+        long last;
+        do {
+            last = lastSequence.get();
+        } while (sequence > last && !lastSequence.compareAndSet(last, sequence));
+
+        if(kind != Notification.Kind.OnNext){
+            long terminal;
+            do {
+                terminal = terminalSequence.get();
+            } while (sequence < terminal && !terminalSequence.compareAndSet(terminal, sequence));
+
+            if(sequence < terminal){
+                terminalKind = kind;
+            }
+        }
+
+        final long terminal = terminalSequence.get();
+        if(terminal < sequence){
+            violatedAfterTerminal(sequence);
+        } else if(terminal == sequence && lastSequence.get() > sequence){
+            violatedAfterTerminal(sequence + 1);
+        }
+    }
+
+    private void violatedAfterTerminal(final long sequence){
+        violated(terminalKind == Notification.Kind.OnError ? Violation.EVENT_AFTER_ERROR : Violation.EVENT_AFTER_COMPLETION, sequence);
+    }
+
+    private void violated(final Violation violation, final long sequence){
+        final int i = violation.ordinal();
+        violationCounts.incrementAndGet(i);
+
+        long first;
+        do {
+            first = firstViolations.get(i);
+        } while (sequence < first && !firstViolations.compareAndSet(i, first, sequence));
+    }
+
+    /**
+     * Allows more onNext events to be delivered
+     * @param n How many more onNext events were requested
+     */
+    void requested(final long n){
+        long current;
+        long next;
+        do {
+            current = requested.get();
+            next = current + n < 0 ? Long.MAX_VALUE : current + n;
+        } while (!requested.compareAndSet(current, next));
+    }
+
+    long getRequested(){
+        return requested.get();
+    }
+
+    long getDelivered(){
+        return delivered.get();
+    }
+
+    /**
+     * @return The violation that happened at the earliest sequence, or null when the contract has been kept
+     */
+    Violation firstViolation(){
+        Violation first = null;
+        for(final Violation violation : Violation.values()){
+            if(violationCounts.get(violation.ordinal()) > 0 && (first == null || firstSequence(violation) < firstSequence(first))){
+                first = violation;
+            }
+        }
+
+        return first;
+    }
+
+    /**
+     * @return The sequence of the event that first caused the violation
+     */
+    long firstSequence(final Violation violation){
+        return firstViolations.get(violation.ordinal());
+    }
+
+    /**
+     * @return The sequence of the first terminal event, or {@link #NO_EVENT} when there was none
+     */
+    long terminalSequence(){
+        final long terminal = terminalSequence.get();
+        return terminal == NO_TERMINAL ? NO_EVENT : terminal;
+    }
+
+    long count(final Violation violation){
+        return violationCounts.get(violation.ordinal());
+    }
+}
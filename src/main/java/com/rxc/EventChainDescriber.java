@@ -0,0 +1,175 @@
+package com.rxc;
+
+import org.hamcrest.Description;
+import org.hamcrest.StringDescription;
+import rx.Notification;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * <p>Describes a bounded window of an event chain, so that failures stay readable no matter how many events were recorded</p>
+ * <p>Only the {@value #WINDOW} events either side of the highlighted event are described, or the first and last {@value #WINDOW} events when
+ * nothing is highlighted, with the skipped events stated as "... N more ..." markers. Runs of identical events are collapsed into a single line
+ * and descriptions longer than {@value #MAX_LINE_LENGTH} characters are cut short</p>
+ */
+final class EventChainDescriber {
+    static final int WINDOW = 20;
+    static final int MAX_LINE_LENGTH = 200;
+
+    private static final String HIGHLIGHT = "\n    -------> ";
+    private static final String INDENT = "\n             ";
+
+    /**
+     * The events a chain is described from
+     */
+    interface Events {
+        /**
+         * @return The event at the index, or null when it is no longer available
+         */
+        Notification<?> get(long index);
+
+        /**
+         * Appends anything else known about the event at the index after its description
+         */
+        void describeExtra(long index, Description description);
+    }
+
+    private EventChainDescriber(){
+    }
+
+    /**
+     * @param description The description to describe the chain to
+     * @param events The events to describe
+     * @param first The index of the first event of the chain
+     * @param size The index after the last event of the chain
+     * @param eventIndex The index of the event to highlight, or a negative value to highlight nothing
+     */
+    static void describe(final Description description, final Events events, final long first, final long size, final long eventIndex){
+        if(size - first <= 2 * WINDOW + 1){
+            describeRange(description, events, first, size, eventIndex);
+        } else if(eventIndex < first || eventIndex >= size){
+            describeRange(description, events, first, first + WINDOW, eventIndex);
+            describeSkipped(description, size - first - 2 * WINDOW);
+            describeRange(description, events, size - WINDOW, size, eventIndex);
+        } else {
+            final long from = Math.max(first, eventIndex - WINDOW);
+            final long to = Math.min(size, eventIndex + WINDOW + 1);
+            describeSkipped(description, from - first);
+            describeRange(description, events, from, to, eventIndex);
+            describeSkipped(description, size - to);
+        }
+    }
+
+    /**
+     * Copies the events that {@link #describe(Description, Events, long, long, long)} reads, at most {@value #WINDOW} either side of the
+     * highlighted event, so that the chain can be described later even if the events are dropped from the log in the meantime
+     * @param events The events to copy from
+     * @param first The index of the first event of the chain
+     * @param size The index after the last event of the chain
+     * @param eventIndex The index of the event to highlight, or a negative value to highlight nothing
+     * @return The copied events, describing the same chain from them gives the same description
+     */
+    static Events capture(final Events events, final long first, final long size, final long eventIndex){
+        final CapturedEvents captured = new CapturedEvents();
+        if(size - first <= 2 * WINDOW + 1){
+            captured.copy(events, first, size);
+        } else if(eventIndex < first || eventIndex >= size){
+            captured.copy(events, first, first + WINDOW);
+            captured.copy(events, size - WINDOW, size);
+        } else {
+            captured.copy(events, Math.max(first, eventIndex - WINDOW), Math.min(size, eventIndex + WINDOW + 1));
+        }
+        return captured;
+    }
+
+    private static void describeSkipped(final Description description, final long skipped){
+        if(skipped > 0){
+            description.appendText(INDENT)
+                       .appendText("... ")
+                       .appendText(String.format(Locale.US, "%,d", skipped))
+                       .appendText(" more ...");
+        }
+    }
+
+    private static void describeRange(final Description description, final Events events, final long from, final long to, final long eventIndex){
+        long i = from;
+        while (i < to){
+            final Notification<?> notification = events.get(i);
+            if(notification == null){
+                // Dropped while the chain was being described
+                i++;
+                continue;
+            }
+
+            // The highlighted event always gets a line of its own
+            long runEnd = i + 1;
+            if(i != eventIndex){
+                while (runEnd < to && runEnd != eventIndex && notification.equals(events.get(runEnd))){
+                    runEnd++;
+                }
+            }
+
+            description.appendText(i == eventIndex ? HIGHLIGHT : INDENT);
+            describeLine(description, events, notification, i);
+            if(runEnd - i > 1){
+                description.appendText(" ... repeated ")
+                           .appendText(String.format(Locale.US, "%,d", runEnd - i - 1))
+                           .appendText(" more times");
+            }
+            i = runEnd;
+        }
+    }
+
+    private static void describeLine(final Description description, final Events events, final Notification<?> notification, final long index){
+        final Description line = new StringDescription();
+        NotificationDescriber.describeNotification(notification, line);
+
+        final String text = line.toString();
+        if(text.length() > MAX_LINE_LENGTH){
+            description.appendText(text.substring(0, MAX_LINE_LENGTH))
+                       .appendText("... (")
+                       .appendText(String.format(Locale.US, "%,d", text.length() - MAX_LINE_LENGTH))
+                       .appendText(" more characters)");
+        } else {
+            description.appendText(text);
+        }
+        events.describeExtra(index, description);
+    }
+
+    /**
+     * The window of a chain copied by {@link #capture(Events, long, long, long)}, in order of their indices
+     */
+    private static final class CapturedEvents implements Events {
+        private final long[] indices = new long[2 * WINDOW + 1];
+        private final Notification<?>[] notifications = new Notification<?>[2 * WINDOW + 1];
+        private final String[] extras = new String[2 * WINDOW + 1];
+        private int count = 0;
+
+        void copy(final Events events, final long from, final long to){
+            for(long i = from; i < to; i++){
+                final Description extra = new StringDescription();
+                events.describeExtra(i, extra);
+
+                indices[count] = i;
+                notifications[count] = events.get(i);
+                extras[count] = extra.toString();
+                count++;
+            }
+        }
+
+        @Override
+        public Notification<?> get(final long index) {
+            final int position = Arrays.binarySearch(indices, 0, count, index);
+            return position < 0 ? null : notifications[position];
+        }
+
+        @Override
+        public void describeExtra(final long index, final Description description) {
+            final int position = Arrays.binarySearch(indices, 0, count, index);
+            if(position >= 0){
+                description.appendText(extras[position]);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.rxc;
+
+import org.hamcrest.SelfDescribing;
+import org.hamcrest.StringDescription;
+
+/**
+ * <p>An {@link AssertionError} whose message is only built when it is first read</p>
+ * <p>Assertions that are expected to fail, and failures that are caught and never reported, then never pay for describing the event chain.
+ * Whatever the message is built from is captured when the failure is thrown, so it describes the events as they were at that point</p>
+ */
+final class EventChainFailure extends AssertionError {
+    private static final long serialVersionUID = 1L;
+
+    private transient SelfDescribing failure;
+    private String message;
+
+    /**
+     * @param failure Describes the failure, it is described at most once
+     */
+    EventChainFailure(final SelfDescribing failure){
+        this.failure = failure;
+    }
+
+    @Override
+    public synchronized String getMessage() {
+        if(message == null){
+            message = StringDescription.toString(failure);
+            failure = null;
+        }
+
+        return message;
+    }
+
+    private synchronized Object writeReplace(){
+        // Serialized failures, such as those sent back from forked test JVMs, carry the described message
+        getMessage();
+        return this;
+    }
+}
@@ -0,0 +1,62 @@
+package com.rxc;
+
+import org.hamcrest.Matcher;
+import rx.Notification;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts every event recorded by a {@link TestSubscriber} by kind, and offers each one to the subscriber's {@link StreamingMatcher}s
+ */
+final class EventCounter {
+    private final Map<Notification.Kind, AtomicLong> countsByKind = new EnumMap<>(Notification.Kind.class);
+    private final List<StreamingMatcher> streamingMatchers = new ArrayList<>();
+
+    EventCounter(final List<Matcher<Notification>> matchers){
+        for(final Notification.Kind kind : Notification.Kind.values()){
+            countsByKind.put(kind, new AtomicLong());
+        }
+
+        for(final Matcher<Notification> matcher : matchers){
+            streamingMatchers.add(new StreamingMatcher(matcher));
+        }
+    }
+
+    void count(final Notification notification){
+        countsByKind.get(notification.getKind()).incrementAndGet();
+
+        for(int i = 0; i < streamingMatchers.size(); i++){
+            streamingMatchers.get(i).offer(notification);
+        }
+    }
+
+    long count(final Notification.Kind kind){
+        return countsByKind.get(kind).get();
+    }
+
+    long total(){
+        long total = 0;
+        for(final AtomicLong count : countsByKind.values()){
+            total += count.get();
+        }
+        return total;
+    }
+
+    /**
+     * @param matcher The matcher that was registered
+     * @return The StreamingMatcher registered for the exact matcher instance, or null if it was never registered
+     */
+    StreamingMatcher streamingMatcherFor(final Matcher<Notification> matcher){
+        for(final StreamingMatcher streamingMatcher : streamingMatchers){
+            if(streamingMatcher.getMatcher() == matcher){
+                return streamingMatcher;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,148 @@
+package com.rxc;
+
+import com.rxc.matchers.OnErrorClassMatcher;
+import com.rxc.matchers.OnNextValueMatcher;
+import org.hamcrest.Matcher;
+import rx.Notification;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>An index over the events of an {@link EventLog} that answers "which is the first matching event" without scanning the whole log</p>
+ * <p>Events are indexed by kind, OnNext values are indexed by equality and OnError throwables by class. Matchers made by
+ * {@link com.rxc.matchers.NotificationMatchers#isValue(Object)} and {@link com.rxc.matchers.NotificationMatchers#isError(Class)} are answered
+ * with a hash lookup, matchers that only match one kind of notification only visit events of that kind, any other matcher scans the log.</p>
+ * <p>Recording never touches the index, instead each lookup first indexes the events published since the previous lookup,
+ * so every event is indexed exactly once no matter how many lookups are made.</p>
+ * @param <T> The type of values held by the recorded OnNext notifications
+ */
+final class EventIndex<T> {
+    static final long NO_EVENT = -1;
+
+    private final EventLog<T> events;
+
+    private final Map<Notification.Kind, IndexList> indicesByKind = new EnumMap<>(Notification.Kind.class);
+    private final Map<Object, Long> firstIndexByValue = new HashMap<>();
+    private final Map<Class<?>, Long> firstIndexByErrorClass = new LinkedHashMap<>();
+    private long firstNullValueIndex = NO_EVENT;
+
+    private long indexedSize = 0;
+
+    EventIndex(final EventLog<T> events){
+        this.events = events;
+
+        for(final Notification.Kind kind : Notification.Kind.values()){
+            indicesByKind.put(kind, new IndexList());
+        }
+    }
+
+    /**
+     * Finds the first event that matches a matcher
+     * @param matcher The matcher to check with
+     * @param size Only events below this index are considered
+     * @return The index of the first matching event, or {@link #NO_EVENT} when no event matches
+     */
+    synchronized long firstMatch(final Matcher<Notification> matcher, final long size){
+        catchUp(size);
+
+        if(matcher instanceof OnNextValueMatcher){
+            final Object value = ((OnNextValueMatcher) matcher).getValue();
+            if(value == null){
+                return below(firstNullValueIndex, size);
+            } else if(isHashable(value)){
+                final Long index = firstIndexByValue.get(value);
+                return index == null ? NO_EVENT : below(index, size);
+            }
+        } else if(matcher instanceof OnErrorClassMatcher){
+            final Class<?> errorClass = ((OnErrorClassMatcher) matcher).getErrorClass();
+            long first = NO_EVENT;
+            for(final Map.Entry<Class<?>, Long> entry : firstIndexByErrorClass.entrySet()){
+                if(errorClass.isAssignableFrom(entry.getKey()) && (first == NO_EVENT || entry.getValue() < first)){
+                    first = entry.getValue();
+                }
+            }
+            return below(first, size);
+        }
+
+        final Notification.Kind kind = AwaitRegistry.kindOf(matcher);
+        if(kind == null){
+            for(long i = 0; i < size; i++){
+                if(matcher.matches(events.get(i))){
+                    return i;
+                }
+            }
+
+            return NO_EVENT;
+        }
+
+        final IndexList indices = indicesByKind.get(kind);
+        for(int i = 0; i < indices.size; i++){
+            final long index = indices.get(i);
+            if(index >= size){
+                break;
+            }
+            if(matcher.matches(events.get(index))){
+                return index;
+            }
+        }
+
+        return NO_EVENT;
+    }
+
+    private void catchUp(final long size){
+        for(; indexedSize < size; indexedSize++){
+            final Notification<T> notification = events.get(indexedSize);
+            indicesByKind.get(notification.getKind()).add(indexedSize);
+
+            if(notification.isOnNext()){
+                final Object value = notification.getValue();
+                if(value == null){
+                    if(firstNullValueIndex == NO_EVENT){
+                        firstNullValueIndex = indexedSize;
+                    }
+                } else if(isHashable(value) && !firstIndexByValue.containsKey(value)){
+                    firstIndexByValue.put(value, indexedSize);
+                }
+            } else if(notification.isOnError() && notification.getThrowable() != null){
+                final Class<?> errorClass = notification.getThrowable().getClass();
+                if(!firstIndexByErrorClass.containsKey(errorClass)){
+                    firstIndexByErrorClass.put(errorClass, indexedSize);
+                }
+            }
+        }
+    }
+
+    private static long below(final long index, final long size){
+        return index < size ? index : NO_EVENT;
+    }
+
+    /**
+     * Arrays are compared element by element by {@link org.hamcrest.core.IsEqual}, so they can not be found by their hash code
+     */
+    private static boolean isHashable(final Object value){
+        return !value.getClass().isArray();
+    }
+
+    /**
+     * A growable list of event indices in ascending order
+     */
+    private static final class IndexList {
+        private int[] indices = new int[16];
+        private int size = 0;
+
+        void add(final long index){
+            if(size == indices.length){
+                indices = Arrays.copyOf(indices, size * 2);
+            }
+            indices[size++] = (int) index;
+        }
+
+        long get(final int i){
+            return indices[i];
+        }
+    }
+}
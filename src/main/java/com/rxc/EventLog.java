@@ -0,0 +1,375 @@
+package com.rxc;
+
+import rx.Notification;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>An append only log of {@link Notification}s backed by fixed size array chunks</p>
+ * <p>Appending never copies previously recorded events, and any event can be read by its index in constant time.</p>
+ * <p>Any number of threads may append at once without locking. Each append claims the next index from an atomic counter,
+ * which gives every event a single global arrival order, and then fills its slot. An event is only published, and so
+ * visible through {@link #size()}, once every event before it has been filled in, meaning readers always see a gap free prefix of the log</p>
+ * <p>The log can be limited to the most recent events by count, by age or both. Older events are then dropped a chunk at a time
+ * as new events are published, and only a count of each kind of dropped event is kept. Indices keep counting from the very first
+ * event, so the retained events are always those from {@link #firstRetained()} up to {@link #size()}</p>
+ * <p>The log can also record the time and the thread of every event. These are kept in primitive arrays alongside each chunk,
+ * only the name of each distinct thread is kept as an object</p>
+ * @param <T> The type of values held by the recorded OnNext notifications
+ */
+final class EventLog<T> implements RecordedEvents<T> {
+    static final long UNLIMITED = Long.MAX_VALUE;
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final int PAGE_COUNT = 1024;
+    private static final int PAGE_COUNT_MASK = PAGE_COUNT - 1;
+    private static final long CAPACITY = (long) PAGE_COUNT << (PAGE_SHIFT + CHUNK_SHIFT);
+
+    /**
+     * Receives every event once it has been published, on the thread that published it
+     */
+    interface Listener<T>{
+        void onPublished(long index, Notification<T> notification);
+    }
+
+    private final AtomicReferenceArray<AtomicReferenceArray<Chunk>> pages = new AtomicReferenceArray<>(PAGE_COUNT);
+
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong firstRetained = new AtomicLong();
+    private final AtomicBoolean dropping = new AtomicBoolean();
+
+    private final Map<Notification.Kind, AtomicLong> droppedByKind = new EnumMap<>(Notification.Kind.class);
+
+    private final Map<Long, String> threadNames = new ConcurrentHashMap<>();
+    private volatile long lastNamedThread = -1;
+
+    private final Listener<T> listener;
+    private final long maxRetained;
+    private final long maxAgeNanos;
+    private final boolean recordTiming;
+
+    EventLog(){
+        this(null);
+    }
+
+    EventLog(final Listener<T> listener){
+        this(listener, UNLIMITED, UNLIMITED);
+    }
+
+    /**
+     * @param listener Receives every published event, may be null
+     * @param maxRetained How many of the most recent events to keep, or {@link #UNLIMITED}
+     * @param maxAgeNanos How long to keep events for in nanoseconds, or {@link #UNLIMITED}
+     */
+    EventLog(final Listener<T> listener, final long maxRetained, final long maxAgeNanos){
+        this(listener, maxRetained, maxAgeNanos, false);
+    }
+
+    /**
+     * @param listener Receives every published event, may be null
+     * @param maxRetained How many of the most recent events to keep, or {@link #UNLIMITED}
+     * @param maxAgeNanos How long to keep events for in nanoseconds, or {@link #UNLIMITED}
+     * @param recordTiming Whether to record the time and the thread of every event
+     */
+    EventLog(final Listener<T> listener, final long maxRetained, final long maxAgeNanos, final boolean recordTiming){
+        this.listener = listener;
+        this.maxRetained = maxRetained;
+        this.maxAgeNanos = maxAgeNanos;
+        this.recordTiming = recordTiming;
+
+        for(final Notification.Kind kind : Notification.Kind.values()){
+            droppedByKind.put(kind, new AtomicLong());
+        }
+    }
+
+    /**
+     * Appends a notification to the end of the log
+     * @param notification The notification to append
+     * @return The index the notification was recorded at
+     */
+    long append(final Notification<T> notification){
+        final long index = claim();
+        fill(index, notification);
+
+        return index;
+    }
+
+    /**
+     * Claims the index the next notification will be recorded at, every claimed index must then be filled with {@link #fill(long, Notification)}.
+     * No event after the claimed index is published until it has been filled
+     * @return The claimed index
+     */
+    long claim(){
+        final long index = claimed.getAndIncrement();
+        if(index - firstRetained.get() >= CAPACITY){
+            throw new IllegalStateException("EventLog can not hold more than " + CAPACITY + " events");
+        }
+
+        return index;
+    }
+
+    /**
+     * Records a notification at an index returned by {@link #claim()}
+     * @param index The claimed index
+     * @param notification The notification to record
+     */
+    void fill(final long index, final Notification<T> notification){
+        final Chunk chunk = chunkFor(index);
+        final int offset = (int) (index & CHUNK_MASK);
+        if(chunk.times != null){
+            chunk.times[offset] = System.nanoTime();
+        }
+        if(chunk.threads != null){
+            chunk.threads[offset] = threadId();
+        }
+        chunk.slots.set(offset, notification);
+        publish();
+    }
+
+    /**
+     * Advances the published size past every filled slot, this is done by whichever appending thread gets there first
+     */
+    private void publish(){
+        while (true){
+            final long index = published.get();
+            if(index == claimed.get()){
+                return;
+            }
+
+            final Chunk chunk = chunkFor(index);
+            @SuppressWarnings("unchecked")
+            final Notification<T> notification = (Notification<T>) chunk.slots.get((int) (index & CHUNK_MASK));
+            if(notification == null){
+                // The owner of this slot has not filled it yet, it will publish when it does
+                return;
+            }
+
+            if(published.compareAndSet(index, index + 1)){
+                if(listener != null){
+                    listener.onPublished(index, notification);
+                }
+                if(maxRetained != UNLIMITED || maxAgeNanos != UNLIMITED){
+                    dropExpired(index + 1, maxAgeNanos == UNLIMITED ? 0 : chunk.times[(int) (index & CHUNK_MASK)]);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Drops every event that is outside of the retention limits</p>
+     * <p>Only one thread drops events at a time, any other thread that finds events to drop while that is happening leaves
+     * them for the dropping thread, which checks again before it stops</p>
+     * @param size The published size to apply the count limit against
+     * @param now The time to apply the age limit against
+     */
+    private void dropExpired(final long size, final long now){
+        while (dropping.compareAndSet(false, true)){
+            final long first = firstRetained.get();
+            final long retained = retainedFrom(first, Math.max(size, published.get()), now);
+
+            if(retained > first){
+                firstRetained.set(retained);
+                drop(first, retained);
+            }
+
+            dropping.set(false);
+
+            if(retainedFrom(retained, published.get(), now) <= retained){
+                return;
+            }
+        }
+    }
+
+    private long retainedFrom(final long first, final long size, final long now){
+        long retained = first;
+        if(maxRetained != UNLIMITED){
+            retained = Math.max(retained, size - maxRetained);
+        }
+        if(maxAgeNanos != UNLIMITED){
+            while (retained < size && now - timeOf(retained) > maxAgeNanos){
+                retained++;
+            }
+        }
+
+        return retained;
+    }
+
+    /**
+     * Counts and releases the events in a range that has just been dropped
+     */
+    private void drop(final long from, final long to){
+        for(long i = from; i < to; i++){
+            droppedByKind.get(slot(i).getKind()).incrementAndGet();
+        }
+
+        for(long chunkStart = from & ~CHUNK_MASK; chunkStart + CHUNK_SIZE <= to; chunkStart += CHUNK_SIZE){
+            final AtomicReferenceArray<Chunk> page = pages.get(pageIndex(chunkStart));
+            final int chunkIndex = chunkIndex(chunkStart);
+            page.set(chunkIndex, null);
+
+            if(chunkIndex == PAGE_MASK){
+                pages.set(pageIndex(chunkStart), null);
+            }
+        }
+    }
+
+    private static int pageIndex(final long index){
+        return (int) ((index >>> (PAGE_SHIFT + CHUNK_SHIFT)) & PAGE_COUNT_MASK);
+    }
+
+    private static int chunkIndex(final long index){
+        return (int) ((index >>> CHUNK_SHIFT) & PAGE_MASK);
+    }
+
+    private Chunk chunkFor(final long index){
+        final int pageIndex = pageIndex(index);
+        AtomicReferenceArray<Chunk> page = pages.get(pageIndex);
+        if(page == null){
+            pages.compareAndSet(pageIndex, null, new AtomicReferenceArray<Chunk>(PAGE_SIZE));
+            page = pages.get(pageIndex);
+        }
+
+        final int chunkIndex = chunkIndex(index);
+        Chunk chunk = page.get(chunkIndex);
+        if(chunk == null){
+            page.compareAndSet(chunkIndex, null, new Chunk(recordTiming || maxAgeNanos != UNLIMITED, recordTiming));
+            chunk = page.get(chunkIndex);
+        }
+
+        return chunk;
+    }
+
+    /**
+     * @return The id of the current thread, after making sure its name is known
+     */
+    private long threadId(){
+        final Thread thread = Thread.currentThread();
+        final long id = thread.getId();
+        // Events mostly arrive on the same thread as the event before them, which skips the lookup
+        if(id != lastNamedThread){
+            if(!threadNames.containsKey(id)){
+                threadNames.put(id, thread.getName());
+            }
+            lastNamedThread = id;
+        }
+
+        return id;
+    }
+
+    private Chunk existingChunkFor(final long index){
+        final AtomicReferenceArray<Chunk> page = pages.get(pageIndex(index));
+        return page == null ? null : page.get(chunkIndex(index));
+    }
+
+    private long timeOf(final long index){
+        return existingChunkFor(index).times[(int) (index & CHUNK_MASK)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private Notification<T> slot(final long index){
+        return (Notification<T>) existingChunkFor(index).slots.get((int) (index & CHUNK_MASK));
+    }
+
+    /**
+     * @return How many notifications have been published to the log, including any that have since been dropped
+     */
+    @Override
+    public long size(){
+        return published.get();
+    }
+
+    /**
+     * @return The index of the oldest notification that is still retained
+     */
+    @Override
+    public long firstRetained(){
+        return firstRetained.get();
+    }
+
+    /**
+     * @param kind The kind of notification to count
+     * @return How many notifications of the given kind have been dropped
+     */
+    long dropped(final Notification.Kind kind){
+        return droppedByKind.get(kind).get();
+    }
+
+    /**
+     * @return Whether the time and the thread of every event are recorded
+     */
+    boolean recordsTiming(){
+        return recordTiming;
+    }
+
+    /**
+     * @param index The index of the notification, must be less than {@link #size()}
+     * @return The {@link System#nanoTime()} the notification was recorded at, or {@link #NO_TIME} when it has been dropped or times are not recorded
+     */
+    long time(final long index){
+        final Chunk chunk = existingChunkFor(index);
+        if(chunk == null || chunk.times == null || index < firstRetained.get()){
+            return NO_TIME;
+        }
+
+        final int offset = (int) (index & CHUNK_MASK);
+        // Reading the slot first makes the plain write of the time visible
+        chunk.slots.get(offset);
+        return chunk.times[offset];
+    }
+
+    /**
+     * @param index The index of the notification, must be less than {@link #size()}
+     * @return The name of the thread the notification was recorded on, or null when it has been dropped or threads are not recorded
+     */
+    String threadName(final long index){
+        final Chunk chunk = existingChunkFor(index);
+        if(chunk == null || chunk.threads == null || index < firstRetained.get()){
+            return null;
+        }
+
+        final int offset = (int) (index & CHUNK_MASK);
+        chunk.slots.get(offset);
+        return threadNames.get(chunk.threads[offset]);
+    }
+
+    /**
+     * Reads the notification recorded at a given index
+     * @param index The index of the notification, must be less than {@link #size()}
+     * @return The notification recorded at the index, or null when it has been dropped
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Notification<T> get(final long index){
+        final Chunk chunk = existingChunkFor(index);
+        if(chunk == null || index < firstRetained.get()){
+            return null;
+        }
+
+        return (Notification<T>) chunk.slots.get((int) (index & CHUNK_MASK));
+    }
+
+    private static final class Chunk {
+        private final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<>(CHUNK_SIZE);
+        private final long[] times;
+        private final long[] threads;
+
+        Chunk(final boolean recordTimes, final boolean recordThreads){
+            times = recordTimes ? new long[CHUNK_SIZE] : null;
+            threads = recordThreads ? new long[CHUNK_SIZE] : null;
+        }
+    }
+}
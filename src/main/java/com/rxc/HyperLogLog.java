@@ -0,0 +1,65 @@
+package com.rxc;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * <p>Estimates how many distinct hashes have been added in a fixed amount of memory</p>
+ * <p>Uses {@value #PRECISION} bits of each hash to pick one of {@value #REGISTERS} registers, which keeps the longest run of leading zeros
+ * seen in the rest of the hash. The estimate is typically within 1% of the true count. Any number of threads may add at once</p>
+ */
+final class HyperLogLog {
+    static final int PRECISION = 14;
+    static final int REGISTERS = 1 << PRECISION;
+
+    private final AtomicIntegerArray registers = new AtomicIntegerArray(REGISTERS);
+
+    /**
+     * @param hash A well mixed 64 bit hash, see {@link #mix(long)}
+     */
+    void add(final long hash){
+        final int register = (int) (hash >>> (64 - PRECISION));
+        final int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+
+        int current;
+        do {
+            current = registers.get(register);
+        } while (rank > current && !registers.compareAndSet(register, current, rank));
+    }
+
+    /**
+     * @return The estimated number of distinct hashes added
+     */
+    long estimate(){
+        double sum = 0;
+        int zeros = 0;
+        for(int i = 0; i < REGISTERS; i++){
+            final int rank = registers.get(i);
+            sum += 1.0 / (1L << rank);
+            if(rank == 0){
+                zeros++;
+            }
+        }
+
+        final double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+        final double estimate = alpha * REGISTERS * REGISTERS / sum;
+        if(estimate <= 2.5 * REGISTERS && zeros > 0){
+            // Counting the empty registers is more accurate for small counts
+            return Math.round(REGISTERS * Math.log((double) REGISTERS / zeros));
+        }
+
+        return Math.round(estimate);
+    }
+
+    /**
+     * Spreads the bits of a hash code over 64 bits, so that similar hash codes give unrelated hashes
+     */
+    static long mix(final long hashCode){
+        long h = hashCode;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
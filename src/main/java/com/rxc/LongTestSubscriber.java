@@ -0,0 +1,141 @@
+package com.rxc;
+
+import com.rxc.matchers.LongMatcher;
+import com.rxc.matchers.OrderMatcher;
+import rx.Subscriber;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A {@link Subscriber} for {@link rx.Observable}s of integral numbers that records every value as a primitive long</p>
+ * <p>Values are kept in long array chunks rather than as boxed values wrapped in {@link rx.Notification}s, and are checked
+ * with the primitive matchers from {@link com.rxc.matchers.PrimitiveMatchers}, so neither recording nor asserting allocates per event.
+ * This works for Integer, Long, Short and Byte values. Like {@link TestSubscriber} it is entirely thread safe and makes no
+ * assumptions about the {@link rx.Observable} contract</p>
+ * @param <T> The type of values that will be emitted by the {@link rx.Observable}
+ */
+public class LongTestSubscriber<T extends Number> extends Subscriber<T> {
+    private static final int DEFAULT_TIMEOUT = 5000;
+
+    private final PrimitiveRecorder recorder = new PrimitiveRecorder(false);
+
+    @Override
+    public void onCompleted() {
+        recorder.recordCompleted();
+    }
+
+    @Override
+    public void onError(final Throwable e) {
+        recorder.recordError(e);
+    }
+
+    @Override
+    public void onNext(final T t) {
+        if(t == null){
+            throw new IllegalArgumentException("LongTestSubscriber can not record a null value");
+        }
+        recorder.recordNext(t.longValue());
+    }
+
+    private static PrimitiveRecorder.ValueCheck check(final LongMatcher matcher){
+        return new PrimitiveRecorder.ValueCheck() {
+            @Override
+            public boolean matches(final long bits) {
+                return matcher.matches(bits);
+            }
+        };
+    }
+
+    /**
+     * @return How many events have been recorded
+     */
+    public long getEventCount(){
+        return recorder.getEventCount();
+    }
+
+    /**
+     * <p>Holds the current thread until the subscriber has received a certain number of values that match the given matcher</p>
+     * <p><b>Fails:</b> When the proper number of matching values aren't recorded before a timeout occurs</p>
+     *
+     * @param matcher The matcher used for checking the values
+     * @param times How many values need to be seen that match before the thread is released
+     * @param timeout How long to wait before timing out
+     * @param timeUnit The unit to be used for the timeout
+     * @throws InterruptedException When the thread is interrupted
+     */
+    public void awaitValue(final LongMatcher matcher, final int times, final long timeout, final TimeUnit timeUnit) throws InterruptedException {
+        recorder.awaitValue(check(matcher), matcher, times, timeout, timeUnit);
+    }
+
+    /**
+     * <p>Holds the current thread until the subscriber has received a value that matches the given matcher</p>
+     * <p>The wait will timeout after {@value #DEFAULT_TIMEOUT}ms</p>
+     * <p><b>Fails:</b> When a matching value isn't recorded before a timeout occurs</p>
+     *
+     * @param matcher The matcher used for checking the values
+     * @throws InterruptedException When the thread is interrupted
+     */
+    public void awaitValue(final LongMatcher matcher) throws InterruptedException {
+        awaitValue(matcher,1,DEFAULT_TIMEOUT,TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <p>Holds the current thread until the subscriber has received an onError or onCompleted event</p>
+     * <p><b>Fails:</b> When no terminal event is recorded before a timeout occurs</p>
+     *
+     * @param timeout How long to wait before timing out
+     * @param timeUnit The unit to be used for the timeout
+     * @throws InterruptedException When the thread is interrupted
+     */
+    public void awaitTerminalEvent(final long timeout, final TimeUnit timeUnit) throws InterruptedException {
+        recorder.awaitTerminalEvent(timeout, timeUnit);
+    }
+
+    /**
+     * <p>Holds the current thread until the subscriber has received an onError or onCompleted event</p>
+     * <p>The wait will timeout after {@value #DEFAULT_TIMEOUT}ms</p>
+     * <p><b>Fails:</b> When no terminal event is recorded before a timeout occurs</p>
+     *
+     * @throws InterruptedException When the thread is interrupted
+     */
+    public void awaitTerminalEvent() throws InterruptedException {
+        awaitTerminalEvent(DEFAULT_TIMEOUT,TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Asserts that this Subscriber has received a value matching the given matcher
+     * @param matcher The matcher to check with
+     */
+    public void assertHasValue(final LongMatcher matcher){
+        recorder.assertHasValue(check(matcher), matcher);
+    }
+
+    /**
+     * Asserts that this Subscriber has not received a value matching the given matcher
+     * @param matcher The matcher to check with
+     */
+    public void assertDoesNotHaveValue(final LongMatcher matcher){
+        recorder.assertDoesNotHaveValue(check(matcher), matcher);
+    }
+
+    /**
+     * Asserts that every value this Subscriber has received matches the given matcher
+     * @param matcher The matcher to check with
+     */
+    public void assertEveryValue(final LongMatcher matcher){
+        recorder.assertEveryValue(check(matcher), matcher);
+    }
+
+    /**
+     * Asserts that every pair of consecutive values this Subscriber has received is in the order described by the given matcher
+     * @param matcher The matcher to check each pair of values with, such as {@link com.rxc.matchers.PrimitiveMatchers#isStrictlyIncreasing()}
+     */
+    public void assertValuesInOrder(final OrderMatcher matcher){
+        recorder.assertValuesInOrder(new PrimitiveRecorder.OrderCheck() {
+            @Override
+            public boolean inOrder(final long previousBits, final long bits) {
+                return matcher.matches(previousBits, bits);
+            }
+        }, matcher);
+    }
+}
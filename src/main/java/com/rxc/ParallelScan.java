@@ -0,0 +1,112 @@
+package com.rxc;
+
+import org.hamcrest.Matcher;
+import rx.Notification;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Evaluates a matcher against a range of recorded events on a {@link ForkJoinPool}, for matchers that are expensive enough that
+ * scanning on a single thread is the bottleneck</p>
+ * <p>The range is split in half until each task has at most {@value #CHUNK_SIZE} events, and every task scans its events in order.
+ * The lowest matching index found so far is shared between tasks, so a task stops as soon as it passes it, and tasks that start
+ * beyond it never scan at all. The matcher must be safe to call from several threads at once</p>
+ */
+final class ParallelScan {
+    static final int CHUNK_SIZE = 1024;
+
+    private static final long NONE = Long.MAX_VALUE;
+
+    private static ForkJoinPool defaultPool = null;
+
+    private final ForkJoinPool pool;
+
+    ParallelScan(final ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    /**
+     * @return A pool shared by every TestSubscriber that was not given one, its threads are daemons so they never hold up the JVM
+     */
+    static synchronized ForkJoinPool defaultPool(){
+        if(defaultPool == null){
+            defaultPool = new ForkJoinPool();
+        }
+
+        return defaultPool;
+    }
+
+    /**
+     * @param events The events to scan
+     * @param matcher The matcher to check with
+     * @param from The index of the first event to check
+     * @param to The index after the last event to check
+     * @param lowest Whether the lowest matching index is needed, rather than any matching index
+     * @return The index of a matching event, the lowest one if asked for, or {@link EventIndex#NO_EVENT} when none match
+     */
+    long find(final RecordedEvents<?> events, final Matcher<Notification> matcher, final long from, final long to, final boolean lowest){
+        final AtomicLong found = new AtomicLong(NONE);
+        pool.invoke(new Scan(events, matcher, from, to, lowest, found));
+
+        final long match = found.get();
+        return match == NONE ? EventIndex.NO_EVENT : match;
+    }
+
+    private static final class Scan extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RecordedEvents<?> events;
+        private final Matcher<Notification> matcher;
+        private final Notification.Kind kind;
+        private final long from;
+        private final long to;
+        private final boolean lowest;
+        private final AtomicLong found;
+
+        Scan(final RecordedEvents<?> events, final Matcher<Notification> matcher, final long from, final long to,
+             final boolean lowest, final AtomicLong found){
+            this.events = events;
+            this.matcher = matcher;
+            this.kind = AwaitRegistry.kindOf(matcher);
+            this.from = from;
+            this.to = to;
+            this.lowest = lowest;
+            this.found = found;
+        }
+
+        /**
+         * @return Whether events from the given index can no longer change the result
+         */
+        private boolean settled(final long index){
+            final long match = found.get();
+            return lowest ? index > match : match != NONE;
+        }
+
+        @Override
+        protected void compute() {
+            if(settled(from)){
+                return;
+            }
+
+            if(to - from > CHUNK_SIZE){
+                final long middle = from + (to - from) / 2;
+                invokeAll(new Scan(events, matcher, from, middle, lowest, found),
+                          new Scan(events, matcher, middle, to, lowest, found));
+                return;
+            }
+
+            for(long i = from; i < to && !settled(i); i++){
+                final Notification<?> notification = events.get(i);
+                if(notification != null && (kind == null || kind == notification.getKind()) && matcher.matches(notification)){
+                    long match = found.get();
+                    while (i < match && !found.compareAndSet(match, i)){
+                        match = found.get();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
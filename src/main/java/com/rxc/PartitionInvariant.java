@@ -0,0 +1,104 @@
+package com.rxc;
+
+import rx.functions.Func1;
+import rx.functions.Func2;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Checks an ordering invariant within each partition of the onNext values as they are recorded, in constant time per value</p>
+ * <p>Values are partitioned by a key, and each value is checked against the previous value of its partition. Only the latest value of each
+ * partition, the first violation and a count of violations are kept, so checking never grows with the number of values.
+ * Values are identified by their sequence, the position they were recorded at</p>
+ * <p>A value the key extractor or the ordering throws on is not checked, the exception is kept in {@link #failure()} instead</p>
+ * @param <T> The type of values held by the OnNext notifications
+ */
+final class PartitionInvariant<T> {
+    static final long NO_EVENT = -1;
+
+    /** Stands in for a null key, which the map of partitions can not hold */
+    private static final Object NULL_KEY = new Object();
+
+    private final Func1<? super T, ?> keyExtractor;
+    private final Func2<? super T, ? super T, Boolean> inOrder;
+
+    private final ConcurrentMap<Object, T> latestByKey = new ConcurrentHashMap<>();
+
+    private final CallbackFailure failure = new CallbackFailure();
+
+    private final AtomicLong violations = new AtomicLong();
+    private long firstSequence = Long.MAX_VALUE;
+    private Object firstKey = null;
+    private T firstPrevious = null;
+    private T firstValue = null;
+
+    /**
+     * @param keyExtractor Gives the partition key of a value
+     * @param inOrder Given the previous value and the next value of a partition, whether they are in order
+     */
+    PartitionInvariant(final Func1<? super T, ?> keyExtractor, final Func2<? super T, ? super T, Boolean> inOrder){
+        this.keyExtractor = keyExtractor;
+        this.inOrder = inOrder;
+    }
+
+    /**
+     * Checks an onNext value against the previous value of its partition
+     * @param sequence The position the value was recorded at
+     * @param value The onNext value
+     */
+    void check(final long sequence, final T value){
+        try {
+            final Object key = keyExtractor.call(value);
+            final T previous = latestByKey.put(key == null ? NULL_KEY : key, value);
+            if(previous != null && !inOrder.call(previous, value)){
+                violated(sequence, key, previous, value);
+            }
+        } catch (RuntimeException e) {
+            failure.record(sequence, e);
+        }
+    }
+
+    private synchronized void violated(final long sequence, final Object key, final T previous, final T value){
+        violations.incrementAndGet();
+        if(sequence < firstSequence){
+            firstSequence = sequence;
+            firstKey = key;
+            firstPrevious = previous;
+            firstValue = value;
+        }
+    }
+
+    /**
+     * @return How many values were out of order
+     */
+    long count(){
+        return violations.get();
+    }
+
+    /**
+     * @return The exceptions thrown by the key extractor or the ordering
+     */
+    CallbackFailure failure(){
+        return failure;
+    }
+
+    /**
+     * @return The sequence of the first value that was out of order, or {@link #NO_EVENT} when every value was in order
+     */
+    synchronized long firstSequence(){
+        return firstSequence == Long.MAX_VALUE ? NO_EVENT : firstSequence;
+    }
+
+    /**
+     * @return A description of the first value that was out of order, or null when every value was in order
+     */
+    synchronized String describeFirst(){
+        if(firstSequence == Long.MAX_VALUE){
+            return null;
+        }
+
+        return firstValue + " followed " + firstPrevious + " within key " + firstKey;
+    }
+}
@@ -0,0 +1,179 @@
+package com.rxc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>An append only log of events whose OnNext values are stored as raw 64 bit patterns in primitive array chunks</p>
+ * <p>This follows the same lock free claim and publish scheme as {@link EventLog}, but records an OnNext event without allocating
+ * anything. The kind of each event is kept in a parallel int array that also marks when its slot has been filled,
+ * the rare OnError throwables are kept on the side</p>
+ */
+final class PrimitiveEventLog {
+    static final int ON_NEXT = 1;
+    static final int ON_ERROR = 2;
+    static final int ON_COMPLETED = 3;
+
+    private static final int EMPTY = 0;
+
+    /** Stands in for a null throwable, which the map of throwables can not hold */
+    private static final Throwable NULL_ERROR = new Throwable();
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final int PAGE_COUNT = 1024;
+    private static final long CAPACITY = (long) PAGE_COUNT << (PAGE_SHIFT + CHUNK_SHIFT);
+
+    /**
+     * Receives every event once it has been published, on the thread that published it
+     */
+    interface Listener{
+        void onPublished(long index, int kind);
+    }
+
+    private final AtomicReferenceArray<AtomicReferenceArray<Chunk>> pages = new AtomicReferenceArray<>(PAGE_COUNT);
+
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+
+    private final Map<Long, Throwable> errors = new ConcurrentHashMap<>();
+
+    private final Listener listener;
+
+    PrimitiveEventLog(final Listener listener){
+        this.listener = listener;
+    }
+
+    long appendNext(final long bits){
+        return append(ON_NEXT, bits);
+    }
+
+    long appendError(final Throwable throwable){
+        final long index = claim();
+        errors.put(index, throwable == null ? NULL_ERROR : throwable);
+        return fill(index, ON_ERROR, 0);
+    }
+
+    long appendCompleted(){
+        return append(ON_COMPLETED, 0);
+    }
+
+    private long append(final int kind, final long bits){
+        return fill(claim(), kind, bits);
+    }
+
+    /**
+     * Claims the next index, nothing can fail between claiming an index and filling it or no later event would ever be published
+     */
+    private long claim(){
+        long index;
+        do {
+            index = claimed.get();
+            if(index >= CAPACITY){
+                throw new IllegalStateException("PrimitiveEventLog can not hold more than " + CAPACITY + " events");
+            }
+        } while (!claimed.compareAndSet(index, index + 1));
+
+        return index;
+    }
+
+    private long fill(final long index, final int kind, final long bits){
+        final Chunk chunk = chunkFor(index);
+        final int offset = (int) (index & CHUNK_MASK);
+        chunk.values[offset] = bits;
+        chunk.kinds.set(offset, kind);
+        publish();
+
+        return index;
+    }
+
+    /**
+     * Advances the published size past every filled slot, this is done by whichever appending thread gets there first
+     */
+    private void publish(){
+        while (true){
+            final long index = published.get();
+            if(index == claimed.get()){
+                return;
+            }
+
+            final int kind = chunkFor(index).kinds.get((int) (index & CHUNK_MASK));
+            if(kind == EMPTY){
+                // The owner of this slot has not filled it yet, it will publish when it does
+                return;
+            }
+
+            if(published.compareAndSet(index, index + 1)){
+                listener.onPublished(index, kind);
+            }
+        }
+    }
+
+    private Chunk chunkFor(final long index){
+        final int pageIndex = (int) (index >>> (PAGE_SHIFT + CHUNK_SHIFT));
+        AtomicReferenceArray<Chunk> page = pages.get(pageIndex);
+        if(page == null){
+            pages.compareAndSet(pageIndex, null, new AtomicReferenceArray<Chunk>(PAGE_SIZE));
+            page = pages.get(pageIndex);
+        }
+
+        final int chunkIndex = (int) ((index >>> CHUNK_SHIFT) & PAGE_MASK);
+        Chunk chunk = page.get(chunkIndex);
+        if(chunk == null){
+            page.compareAndSet(chunkIndex, null, new Chunk());
+            chunk = page.get(chunkIndex);
+        }
+
+        return chunk;
+    }
+
+    /**
+     * @return How many events have been published to the log
+     */
+    long size(){
+        return published.get();
+    }
+
+    /**
+     * @param index The index of the event, must be less than {@link #size()}
+     * @return {@link #ON_NEXT}, {@link #ON_ERROR} or {@link #ON_COMPLETED}
+     */
+    int kind(final long index){
+        return chunkFor(index).kinds.get((int) (index & CHUNK_MASK));
+    }
+
+    /**
+     * @param index The index of an OnNext event, must be less than {@link #size()}
+     * @return The raw bits of the value recorded at the index
+     */
+    long bits(final long index){
+        final Chunk chunk = chunkFor(index);
+        final int offset = (int) (index & CHUNK_MASK);
+        // Reading the kind first makes the plain write of the value visible
+        chunk.kinds.get(offset);
+        return chunk.values[offset];
+    }
+
+    /**
+     * @param index The index of an OnError event, must be less than {@link #size()}
+     * @return The throwable recorded at the index
+     */
+    Throwable error(final long index){
+        final Throwable throwable = errors.get(index);
+        return throwable == NULL_ERROR ? null : throwable;
+    }
+
+    private static final class Chunk {
+        private final long[] values = new long[CHUNK_SIZE];
+        private final AtomicIntegerArray kinds = new AtomicIntegerArray(CHUNK_SIZE);
+    }
+}
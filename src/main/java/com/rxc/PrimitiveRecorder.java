@@ -0,0 +1,251 @@
+package com.rxc;
+
+import org.hamcrest.Description;
+import org.hamcrest.SelfDescribing;
+import org.hamcrest.StringDescription;
+import rx.Notification;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>The recording, waiting and assertions shared by {@link LongTestSubscriber} and {@link DoubleTestSubscriber}</p>
+ * <p>Values are handled as the raw 64 bit patterns kept by {@link PrimitiveEventLog}, the subscribers only convert values to and from them</p>
+ */
+final class PrimitiveRecorder {
+    static final long NO_EVENT = -1;
+
+    /**
+     * Checks the raw bits of a value, converting them back to the subscriber's type of value
+     */
+    interface ValueCheck {
+        boolean matches(long bits);
+    }
+
+    /**
+     * Checks the raw bits of two consecutive values, converting them back to the subscriber's type of value
+     */
+    interface OrderCheck {
+        boolean inOrder(long previousBits, long bits);
+    }
+
+    /**
+     * Checks the events of the log one at a time, in order
+     */
+    interface Scan {
+        /**
+         * @param index The index of the event being checked
+         * @param kind The kind of the event being checked
+         * @return true once the scan has found what it was looking for
+         */
+        boolean check(long index, int kind);
+    }
+
+    private final boolean doubles;
+
+    private final SequenceBarrier published = new SequenceBarrier();
+
+    private final PrimitiveEventLog events = new PrimitiveEventLog(new PrimitiveEventLog.Listener() {
+        @Override
+        public void onPublished(final long index, final int kind) {
+            published.publish(index + 1);
+        }
+    });
+
+    private final EventChainDescriber.Events chainEvents = new EventChainDescriber.Events() {
+        @Override
+        public Notification<?> get(final long index) {
+            return notification(index);
+        }
+
+        @Override
+        public void describeExtra(final long index, final Description description) {
+        }
+    };
+
+    /**
+     * @param doubles true if the raw values are double bit patterns, false if they are longs
+     */
+    PrimitiveRecorder(final boolean doubles){
+        this.doubles = doubles;
+    }
+
+    void recordNext(final long bits){
+        events.appendNext(bits);
+    }
+
+    void recordError(final Throwable throwable){
+        events.appendError(throwable);
+    }
+
+    void recordCompleted(){
+        events.appendCompleted();
+    }
+
+    long getEventCount(){
+        return events.size();
+    }
+
+    /**
+     * Runs a scan over every published event
+     * @return The index the scan stopped at, or {@link #NO_EVENT} when it never found what it was looking for
+     */
+    private long scan(final Scan scan){
+        final long size = events.size();
+        for(long i = 0; i < size; i++){
+            if(scan.check(i, events.kind(i))){
+                return i;
+            }
+        }
+
+        return NO_EVENT;
+    }
+
+    /**
+     * Runs a scan over every published event and every event published after it, until the scan finds what it is looking for
+     * @param timeout How long to wait before timing out
+     * @param timeUnit The unit of the timeout
+     * @return false if the wait timed out
+     * @throws InterruptedException When the thread is interrupted
+     */
+    private boolean await(final Scan scan, final long timeout, final TimeUnit timeUnit) throws InterruptedException {
+        final long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+        long scanned = 0;
+
+        while (true){
+            final long size = events.size();
+            for(; scanned < size; scanned++){
+                if(scan.check(scanned, events.kind(scanned))){
+                    return true;
+                }
+            }
+
+            if(!published.awaitBeyond(scanned, deadline)){
+                return false;
+            }
+        }
+    }
+
+    private long firstMatch(final ValueCheck check, final boolean matching){
+        return scan(new Scan() {
+            @Override
+            public boolean check(final long index, final int kind) {
+                return kind == PrimitiveEventLog.ON_NEXT && check.matches(events.bits(index)) == matching;
+            }
+        });
+    }
+
+    void awaitValue(final ValueCheck check, final SelfDescribing matcher, final int times, final long timeout, final TimeUnit timeUnit) throws InterruptedException {
+        final boolean matched = await(new Scan() {
+            private int matches = 0;
+
+            @Override
+            public boolean check(final long index, final int kind) {
+                if(kind == PrimitiveEventLog.ON_NEXT && check.matches(events.bits(index))){
+                    matches++;
+                }
+                return matches >= times;
+            }
+        }, timeout, timeUnit);
+
+        if(!matched){
+            fail(matcher,"Timed out waiting for value",NO_EVENT);
+        }
+    }
+
+    void awaitTerminalEvent(final long timeout, final TimeUnit timeUnit) throws InterruptedException {
+        final boolean terminated = await(new Scan() {
+            @Override
+            public boolean check(final long index, final int kind) {
+                return kind != PrimitiveEventLog.ON_NEXT;
+            }
+        }, timeout, timeUnit);
+
+        if(!terminated){
+            fail("onError or onCompleted","Timed out waiting for event",NO_EVENT);
+        }
+    }
+
+    void assertHasValue(final ValueCheck check, final SelfDescribing matcher){
+        if(firstMatch(check, true) == NO_EVENT){
+            fail(matcher,"There was no matching value in the event chain",NO_EVENT);
+        }
+    }
+
+    void assertDoesNotHaveValue(final ValueCheck check, final SelfDescribing matcher){
+        final long match = firstMatch(check, true);
+        if(match != NO_EVENT){
+            fail("no value matching: " + StringDescription.toString(matcher),"There was a matching value",match);
+        }
+    }
+
+    void assertEveryValue(final ValueCheck check, final SelfDescribing matcher){
+        final long mismatch = firstMatch(check, false);
+        if(mismatch != NO_EVENT){
+            fail("every value matching: " + StringDescription.toString(matcher),"There was a value that did not match",mismatch);
+        }
+    }
+
+    void assertValuesInOrder(final OrderCheck check, final SelfDescribing matcher){
+        final long violation = scan(new Scan() {
+            private boolean hasPrevious = false;
+            private long previous;
+
+            @Override
+            public boolean check(final long index, final int kind) {
+                if(kind != PrimitiveEventLog.ON_NEXT){
+                    return false;
+                }
+
+                final long bits = events.bits(index);
+                final boolean outOfOrder = hasPrevious && !check.inOrder(previous, bits);
+                hasPrevious = true;
+                previous = bits;
+                return outOfOrder;
+            }
+        });
+
+        if(violation != NO_EVENT){
+            fail(matcher,"A value was out of order",violation);
+        }
+    }
+
+    private void fail(final SelfDescribing expected, final String but, final long eventIndex){
+        fail(StringDescription.toString(expected), but, eventIndex);
+    }
+
+    private void fail(final String expected, final String but, final long eventIndex){
+        final long size = events.size();
+
+        throw new EventChainFailure(new SelfDescribing() {
+            @Override
+            public void describeTo(final Description description) {
+                description
+                        .appendText("\n   Expected: ")
+                        .appendText(expected)
+                        .appendText("\n        but: ")
+                        .appendText(but)
+                        .appendText("\nevent chain: ");
+                EventChainDescriber.describe(description, chainEvents, 0, size, eventIndex);
+                description.appendText("\n");
+            }
+        });
+    }
+
+    /**
+     * Boxes a recorded event back into a {@link Notification}, this is only meant for describing failures
+     */
+    Notification<Object> notification(final long index){
+        switch (events.kind(index)){
+            case PrimitiveEventLog.ON_NEXT:
+                final long bits = events.bits(index);
+                if(doubles){
+                    return Notification.<Object>createOnNext(Double.longBitsToDouble(bits));
+                }
+                return Notification.<Object>createOnNext(bits);
+            case PrimitiveEventLog.ON_ERROR:
+                return Notification.createOnError(events.error(index));
+            default:
+                return Notification.createOnCompleted();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.rxc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Counts onNext events per slice of time as they are recorded, and keeps the longest gap between consecutive events</p>
+ * <p>Slices are measured from the first event and kept in a ring, so only the most recent slices are held and recording an event
+ * is an increment of its slice's counter. Events are identified by their sequence, the position they were recorded at</p>
+ */
+final class RateTracker {
+    static final long NO_TIME = -1;
+    static final long NO_EVENT = -1;
+
+    private static final long NO_SLICE = -1;
+
+    private final long sliceNanos;
+    private final int slices;
+
+    /** The number of events in each slice of the ring, and which slice each cell of the ring currently holds */
+    private final AtomicLongArray counts;
+    private final AtomicLongArray heldSlices;
+
+    private final AtomicLong origin = new AtomicLong(NO_TIME);
+    private final AtomicLong lastEventAt = new AtomicLong(NO_TIME);
+    private volatile long endedAt = NO_TIME;
+
+    private volatile long longestGap = 0;
+    private long longestGapSequence = NO_EVENT;
+
+    /**
+     * @param sliceNanos How long each slice is, in nanoseconds
+     * @param slices How many of the most recent slices to hold
+     */
+    RateTracker(final long sliceNanos, final int slices){
+        this.sliceNanos = sliceNanos;
+        this.slices = slices;
+        counts = new AtomicLongArray(slices);
+        heldSlices = new AtomicLongArray(slices);
+        for(int i = 0; i < slices; i++){
+            heldSlices.set(i, NO_SLICE);
+        }
+    }
+
+    /**
+     * Records the time of an event
+     * @param sequence The position the event was recorded at
+     * @param now The time the event was recorded at, in nanoseconds
+     * @param onNext Whether the event counts towards the rate, onError and onCompleted events only end it
+     */
+    void record(final long sequence, final long now, final boolean onNext){
+        origin.compareAndSet(NO_TIME, now);
+
+        if(onNext){
+            // Time is read before the origin is set, so a concurrent first event can set an origin later than this event
+            final long slice = Math.max(0, sliceOf(now));
+            final int cell = (int) (slice % slices);
+            if(heldSlices.get(cell) == slice || claim(cell, slice)){
+                counts.incrementAndGet(cell);
+            }
+        } else {
+            endedAt = now;
+        }
+
+        long previous;
+        do {
+            previous = lastEventAt.get();
+        } while (previous < now && !lastEventAt.compareAndSet(previous, now));
+        if(previous != NO_TIME && now - previous > longestGap){
+            gap(sequence, now - previous);
+        }
+    }
+
+    /**
+     * Moves a cell of the ring on to a newer slice, an event from a slice that has already left the ring is not counted
+     * @return Whether the cell holds the slice
+     */
+    private synchronized boolean claim(final int cell, final long slice){
+        final long held = heldSlices.get(cell);
+        if(held < slice){
+            counts.set(cell, 0);
+            heldSlices.set(cell, slice);
+            return true;
+        }
+
+        return held == slice;
+    }
+
+    private synchronized void gap(final long sequence, final long gap){
+        if(gap > longestGap){
+            longestGap = gap;
+            longestGapSequence = sequence;
+        }
+    }
+
+    long sliceNanos(){
+        return sliceNanos;
+    }
+
+    int slices(){
+        return slices;
+    }
+
+    /**
+     * @return When the first event was recorded, or {@link #NO_TIME} when there were none
+     */
+    long origin(){
+        return origin.get();
+    }
+
+    long lastEventAt(){
+        return lastEventAt.get();
+    }
+
+    boolean hasEnded(){
+        return endedAt != NO_TIME;
+    }
+
+    /**
+     * @param now A time after the first event, in nanoseconds
+     * @return The slice the time falls into
+     */
+    long sliceOf(final long now){
+        return (now - origin.get()) / sliceNanos;
+    }
+
+    /**
+     * @return The first slice that is still held
+     */
+    long firstHeldSlice(final long now){
+        return Math.max(0, sliceOf(now) - slices + 1);
+    }
+
+    /**
+     * @return The slice after the last complete slice, the slice that the events ended in or the slice that is still being counted is not complete
+     */
+    long endSlice(final long now){
+        return sliceOf(hasEnded() ? endedAt : now);
+    }
+
+    /**
+     * @param slice A slice that is still held
+     * @return How many onNext events were recorded in the slice
+     */
+    long count(final long slice){
+        final int cell = (int) (slice % slices);
+        return heldSlices.get(cell) == slice ? counts.get(cell) : 0;
+    }
+
+    /**
+     * @return How many onNext events were recorded from the first slice up to the end slice
+     */
+    long count(final long from, final long to){
+        long total = 0;
+        for(long slice = from; slice < to; slice++){
+            total += count(slice);
+        }
+        return total;
+    }
+
+    /**
+     * @return The events per second recorded from the first slice up to the end slice
+     */
+    double rate(final long from, final long to){
+        return count(from, to) * 1e9 / ((to - from) * sliceNanos);
+    }
+
+    /**
+     * @return The first slice of the window of the given number of slices with the fewest events, between the first slice and the end slice
+     */
+    long slowestWindow(final long from, final long to, final int window){
+        long total = count(from, from + window);
+        long slowestTotal = total;
+        long slowest = from;
+        for(long start = from + 1; start + window <= to; start++){
+            total += count(start + window - 1) - count(start - 1);
+            if(total < slowestTotal){
+                slowestTotal = total;
+                slowest = start;
+            }
+        }
+        return slowest;
+    }
+
+    /**
+     * @return The longest time between consecutive events, in nanoseconds
+     */
+    synchronized long longestGap(){
+        return longestGap;
+    }
+
+    /**
+     * @return The sequence of the event that ended the longest gap, or {@link #NO_EVENT} when there were fewer than two events
+     */
+    synchronized long longestGapSequence(){
+        return longestGapSequence;
+    }
+}
@@ -0,0 +1,25 @@
+package com.rxc;
+
+import rx.Notification;
+
+/**
+ * The events assertions are made against, either recorded in memory by an {@link EventLog} or replayed from a {@link TraceReader}
+ * @param <T> The type of values held by the OnNext notifications
+ */
+interface RecordedEvents<T> {
+    /**
+     * @return How many events there are, including any that have been dropped
+     */
+    long size();
+
+    /**
+     * @return The index of the oldest event that can still be read
+     */
+    long firstRetained();
+
+    /**
+     * @param index The index of the event, must be less than {@link #size()}
+     * @return The event at the index, or null when it has been dropped
+     */
+    Notification<T> get(long index);
+}
@@ -0,0 +1,92 @@
+package com.rxc;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>Lets threads wait until the published size of a log passes a given sequence</p>
+ * <p>Each waiter parks with its own threshold and is only unparked once the log grows past it, so a waiter is never woken just to find
+ * nothing new to look at. Publishing costs a single volatile read while nobody is waiting</p>
+ */
+final class SequenceBarrier {
+    private final AtomicLong published = new AtomicLong();
+
+    private final Set<Waiter> waiters = Collections.newSetFromMap(new ConcurrentHashMap<Waiter, Boolean>());
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    /**
+     * Moves the published size forward, publishing may happen out of order between threads so the size never moves back
+     * @param size The new published size
+     */
+    void publish(final long size){
+        long current;
+        do {
+            current = published.get();
+        } while (size > current && !published.compareAndSet(current, size));
+
+        if(waiting.get() > 0){
+            for(final Waiter waiter : waiters){
+                if(size > waiter.threshold){
+                    LockSupport.unpark(waiter.thread);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The published size
+     */
+    long published(){
+        return published.get();
+    }
+
+    /**
+     * Holds the current thread until the published size is greater than a sequence
+     * @param sequence The sequence the published size has to pass
+     * @param deadline The {@link System#nanoTime()} to give up at
+     * @return false if the wait timed out
+     * @throws InterruptedException When the thread is interrupted
+     */
+    boolean awaitBeyond(final long sequence, final long deadline) throws InterruptedException {
+        if(published.get() > sequence){
+            return true;
+        }
+
+        final Waiter waiter = new Waiter(Thread.currentThread(), sequence);
+        // The waiter is visible before the size is checked again, so a publish after that check is guaranteed to unpark it
+        waiters.add(waiter);
+        waiting.incrementAndGet();
+        try {
+            while (published.get() <= sequence){
+                final long remaining = deadline - System.nanoTime();
+                if(remaining <= 0){
+                    return false;
+                }
+
+                LockSupport.parkNanos(this, remaining);
+                if(Thread.interrupted()){
+                    throw new InterruptedException();
+                }
+            }
+
+            return true;
+        } finally {
+            waiting.decrementAndGet();
+            waiters.remove(waiter);
+        }
+    }
+
+    private static final class Waiter {
+        private final Thread thread;
+        private final long threshold;
+
+        Waiter(final Thread thread, final long threshold){
+            this.thread = thread;
+            this.threshold = threshold;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.rxc;
+
+import org.hamcrest.Matcher;
+import rx.Notification;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A matcher registered with a {@link TestSubscriber} before it subscribes, it is checked against every event as it is recorded
+ * and only keeps a count of the events that matched</p>
+ * <p>Because the count covers every event, waiting on it works the same whether or not the events themselves are kept</p>
+ */
+final class StreamingMatcher {
+    private final Matcher<Notification> matcher;
+    private final Notification.Kind kind;
+
+    private final AtomicLong matches = new AtomicLong();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    StreamingMatcher(final Matcher<Notification> matcher){
+        this.matcher = matcher;
+        this.kind = AwaitRegistry.kindOf(matcher);
+    }
+
+    Matcher<Notification> getMatcher(){
+        return matcher;
+    }
+
+    long getMatches(){
+        return matches.get();
+    }
+
+    void offer(final Notification notification){
+        if((kind == null || kind == notification.getKind()) && matcher.matches(notification)){
+            matches.incrementAndGet();
+
+            if(waiting.get() > 0){
+                synchronized (this){
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Holds the current thread until the matcher has matched a number of events in total
+     * @param times How many matching events to wait for
+     * @param timeout How long to wait before timing out
+     * @param timeUnit The unit of the timeout
+     * @return false if the wait timed out
+     * @throws InterruptedException When the thread is interrupted
+     */
+    boolean await(final long times, final long timeout, final TimeUnit timeUnit) throws InterruptedException {
+        final long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+
+        waiting.incrementAndGet();
+        try {
+            synchronized (this){
+                while (matches.get() < times){
+                    final long remaining = deadline - System.nanoTime();
+                    if(remaining <= 0){
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        return true;
+    }
+}
@@ -4,15 +4,29 @@ import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 import org.hamcrest.SelfDescribing;
 import org.hamcrest.StringDescription;
-import org.junit.Assert;
 import rx.Notification;
+import rx.Observable;
+import rx.Scheduler;
 import rx.Subscriber;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.Subscriptions;
 
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.startsWith;
 
 /**
  * A {@link Subscriber} that records all events so that assertions can be made against them for testing purposes
@@ -21,88 +35,535 @@ import java.util.concurrent.TimeUnit;
  */
 public class TestSubscriber<T> extends Subscriber<T>{
     private static final int DEFAULT_TIMEOUT = 5000;
+    private static final long NO_EVENT = EventIndex.NO_EVENT;
+    private static final long NO_TIME = EventLog.NO_TIME;
+    private static final String COMPUTATION_THREAD_PREFIX = "RxComputationThreadPool-";
+    private static final int TIMELINE_SLICES = 50;
+
+    private final EventLog<T> events;
+
+    /** The events assertions are made against, the log itself unless the events are replayed from a trace */
+    private final RecordedEvents<T> recorded;
+
+    private final TraceWriter<T> trace;
+    private volatile IOException traceFailure = null;
+    private final AtomicReference<IOException> encodeFailure = new AtomicReference<>();
+
+    private final SequenceBarrier published = new SequenceBarrier();
+
+    private final AwaitRegistry waiters = new AwaitRegistry();
+
+    /** Subscriptions to {@link #whenEvent(Matcher, int, long, TimeUnit)} that are checked whenever an event is published to the log */
+    private volatile EventWatch[] watches = newWatches(0);
+
+    private final EventIndex<T> index;
+
+    private final EventCounter counter;
+
+    private final ContractValidator contract;
+
+    private final List<PartitionInvariant<T>> partitionInvariants;
+
+    private final ValueAggregator<T> aggregator;
+
+    private final RateTracker rates;
+
+    private final ParallelScan parallelScan;
+
+    private final EventChainDescriber.Events chainEvents = new EventChainDescriber.Events() {
+        @Override
+        public Notification<?> get(final long index) {
+            return recorded.get(index);
+        }
+
+        @Override
+        public void describeExtra(final long index, final Description description) {
+            if(events.recordsTiming()){
+                describeTiming(description, index);
+            }
+        }
+    };
+
+    private final long initialRequest;
+    private final long batchSize;
+    private final long processingNanos;
+
+    private final VirtualClock virtualClock;
+
+    private final long sampleInterval;
+    private final AtomicLong sampled = new AtomicLong();
+    /** The sequence whose turn it is to be counted and kept, or -1 minus that sequence while a wait is being registered */
+    private final AtomicLong sampledTurn = new AtomicLong();
+    private volatile Notification<T> firstEvent = null;
+    private volatile Notification<T> lastEvent = null;
+
+    private volatile long subscribedAt = NO_TIME;
+    private volatile long firstEventAt = NO_TIME;
+
+    /**
+     * Constructs a TestSubscriber with the default recording behaviour, use {@link TestSubscriberBuilder} for anything else
+     */
+    public TestSubscriber(){
+        this(new TestSubscriberBuilder<T>());
+    }
+
+    TestSubscriber(final TestSubscriberBuilder<T> builder){
+        this(builder, builder.initialRequest, null);
+    }
+
+    /**
+     * @param initialRequest How many events to request when subscribing, which {@link TestSubscriberBuilder#build()} works out from the builder
+     */
+    TestSubscriber(final TestSubscriberBuilder<T> builder, final long initialRequest){
+        this(builder, initialRequest, null);
+    }
+
+    private TestSubscriber(final TestSubscriberBuilder<T> builder, final long initialRequest, final RecordedEvents<T> replayed){
+        events = new EventLog<>(new EventLog.Listener<T>() {
+            @Override
+            public void onPublished(final long index, final Notification<T> notification) {
+                if(recordsEveryEvent()){
+                    published.publish(index + 1);
+
+                    final EventWatch[] current = watches;
+                    for(int i = 0; i < current.length; i++){
+                        current[i].check();
+                    }
+                }
+            }
+        }, builder.maxRetained, builder.maxAgeNanos, builder.recordTiming);
+        index = builder.indexEvents ? new EventIndex<>(events) : null;
+        counter = new EventCounter(builder.countedMatchers);
+        sampleInterval = builder.sampleInterval;
+        this.initialRequest = initialRequest;
+        batchSize = builder.batchSize;
+        processingNanos = builder.processingNanos;
+        contract = new ContractValidator(initialRequest);
+        partitionInvariants = new ArrayList<>(builder.partitionInvariants);
+        aggregator = builder.valueToNumber == null && !builder.estimateDistinct && builder.expectedDistinct == 0
+                ? null
+                : new ValueAggregator<>(builder.valueToNumber, builder.histogramLow, builder.histogramHigh, builder.histogramBuckets,
+                                        builder.estimateDistinct, builder.expectedDistinct);
+        virtualClock = builder.virtualTime == null ? null : new VirtualClock(builder.virtualTime, builder.virtualTimeStepNanos);
+        rates = builder.rateSlices == 0 ? null : new RateTracker(builder.rateSliceNanos, builder.rateSlices);
+        recorded = replayed != null ? replayed : events;
+        parallelScan = builder.matcherPool == null ? null : new ParallelScan(builder.matcherPool);
+
+        if(builder.tracePath != null){
+            try {
+                trace = new TraceWriter<>(builder.tracePath, builder.traceCodec);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not open the trace file " + builder.tracePath, e);
+            }
+        } else {
+            trace = null;
+        }
+    }
+
+    /**
+     * <p>Creates a TestSubscriber holding the events of a trace file, so that assertions can be made against a run after it has ended, or in another JVM</p>
+     * <p>The events are checked against the {@link rx.Observable} contract and counted once, everything else reads them from the trace as needed.
+     * The returned subscriber can not record events of its own, and {@link #awaitEvent(Matcher)} fails straight away instead of waiting</p>
+     * @param reader The trace to replay, it must stay open for as long as the subscriber is used
+     * @return A TestSubscriber holding the events of the trace
+     */
+    public static <T> TestSubscriber<T> replay(final TraceReader<T> reader){
+        return replay((RecordedEvents<T>) reader);
+    }
+
+    /**
+     * @param recorded Events that are no longer being recorded, every one of them must be available
+     */
+    static <T> TestSubscriber<T> replay(final RecordedEvents<T> recorded){
+        final TestSubscriber<T> subscriber = describing(recorded);
+        final long size = recorded.size();
+        for(long i = 0; i < size; i++){
+            final Notification<T> notification = recorded.get(i);
+            subscriber.counter.count(notification);
+            subscriber.contract.validate(i, notification.getKind(), ContractValidator.OWNER);
+        }
+
+        return subscriber;
+    }
+
+    /**
+     * @param recorded Events that are no longer being recorded, every one of them must be available
+     * @return A TestSubscriber that only describes failures against the events, they are neither counted nor checked against the contract
+     */
+    static <T> TestSubscriber<T> describing(final RecordedEvents<T> recorded){
+        return new TestSubscriber<>(new TestSubscriberBuilder<T>(), TestSubscriberBuilder.UNBOUNDED, recorded);
+    }
 
-    private final List<Notification<T>> notifications = new LinkedList<>();
+    private boolean isReplay(){
+        return recorded != events;
+    }
+
+    @Override
+    public void onStart() {
+        subscribedAt = System.nanoTime();
 
-    private AwaitContext currentWait = null;
+        if(initialRequest != TestSubscriberBuilder.UNBOUNDED){
+            // The initial demand is already known to the contract validator
+            request(initialRequest);
+        }
+    }
 
     @Override
     public void onCompleted() {
-        synchronized (notifications){
-            handleEvent(Notification.<T>createOnCompleted());
-        }
+        record(Notification.<T>createOnCompleted());
     }
 
     @Override
     public void onError(final Throwable e) {
-        synchronized (notifications){
-            handleEvent(Notification.<T>createOnError(e));
-        }
+        record(Notification.<T>createOnError(e));
     }
 
     @Override
     public void onNext(final T t) {
-        synchronized (notifications){
-            handleEvent(Notification.createOnNext(t));
+        record(Notification.createOnNext(t));
+
+        if(processingNanos > 0){
+            process();
+        }
+        if(batchSize > 0 && contract.getDelivered() % batchSize == 0){
+            requestMore(batchSize);
+        }
+    }
+
+    private void process(){
+        final long deadline = System.nanoTime() + processingNanos;
+        long remaining = processingNanos;
+        while (remaining > 0){
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    private boolean recordsEveryEvent(){
+        return sampleInterval == 1;
+    }
+
+    private void record(final Notification<T> notification){
+        if(isReplay()){
+            throw new IllegalStateException("A replayed TestSubscriber can not record events");
+        }
+
+        final int delivery = contract.enter();
+        try {
+            if(recordsEveryEvent()){
+                counter.count(notification);
+                // The event is checked against the contract before it is published, so anyone woken by it sees the result
+                final long index = events.claim();
+                try {
+                    contract.validate(index, notification.getKind(), delivery);
+                    checkValue(index, notification);
+                    trackRate(index, notification);
+                    if(index == 0 && events.recordsTiming()){
+                        firstEventAt = System.nanoTime();
+                    }
+                } finally {
+                    // A claimed event that is never filled would hold back every later event
+                    events.fill(index, notification);
+                }
+                trace(index, notification);
+                return;
+            }
+
+            final long sequence = sampled.getAndIncrement();
+            try {
+                contract.validate(sequence, notification.getKind(), delivery);
+                checkValue(sequence, notification);
+                trackRate(sequence, notification);
+                trace(sequence, notification);
+            } finally {
+                // Every sequence takes its turn, or no later event could be kept
+                takeTurn(sequence);
+                try {
+                    counter.count(notification);
+                    if(sequence == 0){
+                        firstEvent = notification;
+                    }
+                    lastEvent = notification;
+
+                    if(sampleInterval != 0 && sequence % sampleInterval == 0){
+                        events.append(notification);
+                    }
+                } finally {
+                    sampledTurn.set(sequence + 1);
+                }
+            }
+
+            waiters.dispatch(sequence, notification);
+        } finally {
+            contract.exit(delivery);
+        }
+    }
+
+    /**
+     * Checks every onNext value against the partition invariants and aggregates it, including values that are not kept. Exceptions thrown
+     * by the functions given to the builder are kept and reported by the assertions that depend on them
+     */
+    private void checkValue(final long sequence, final Notification<T> notification){
+        if(notification.isOnNext()){
+            for(int i = 0; i < partitionInvariants.size(); i++){
+                partitionInvariants.get(i).check(sequence, notification.getValue());
+            }
+            if(aggregator != null){
+                aggregator.add(sequence, notification.getValue());
+            }
+        }
+    }
+
+    private void trackRate(final long sequence, final Notification<T> notification){
+        if(rates != null){
+            rates.record(sequence, now(), notification.isOnNext());
+        }
+    }
+
+    /**
+     * @return The current time in nanoseconds, in virtual time when waiting in virtual time
+     */
+    private long now(){
+        return virtualClock != null ? TimeUnit.MILLISECONDS.toNanos(virtualClock.getScheduler().now()) : System.nanoTime();
+    }
+
+    /**
+     * Writes every event to the trace, including events that are not kept. A failure to write ends the trace, a value that can not be
+     * encoded is written as null and tracing carries on. The first failure of either kind is reported by {@link #closeTrace()}
+     */
+    private void trace(final long sequence, final Notification<T> notification){
+        if(trace == null || traceFailure != null){
+            return;
+        }
+
+        try {
+            trace.write(sequence, notification, System.nanoTime(), Thread.currentThread().getId());
+        } catch (TraceWriter.EncodeFailure e) {
+            encodeFailure.compareAndSet(null, e);
+        } catch (IOException e) {
+            traceFailure = e;
+        } catch (RuntimeException e) {
+            traceFailure = new IOException("Event " + sequence + " could not be traced", e);
+        }
+    }
+
+    /**
+     * Waits until every earlier sequence has been counted and kept, so that events are counted and kept in the order of their sequences
+     */
+    private void takeTurn(final long sequence){
+        while (sampledTurn.get() != sequence){
+            Thread.yield();
         }
     }
 
-    private void handleEvent(final Notification<T> event){
-        notifications.add(event);
+    /**
+     * <p>Registers a wait for events that are offered as they are recorded, between two sampled events</p>
+     * <p>The events before the point of registration are counted from the kept sample or the wait's streaming matcher, and only the events
+     * from that point on are counted by the wait itself, so no event is counted twice</p>
+     * @return How many matching events recorded before the wait was registered count towards it, up to the number it waits for
+     */
+    private int registerOffered(final AwaitContext wait, final int times){
+        final StreamingMatcher streamingMatcher = counter.streamingMatcherFor(wait.getMatcher());
+
+        // Holding the turn stops any event from being counted or kept meanwhile
+        long turn;
+        do {
+            turn = sampledTurn.get();
+            if(turn < 0){
+                Thread.yield();
+            }
+        } while (turn < 0 || !sampledTurn.compareAndSet(turn, -1 - turn));
 
-        if(currentWait != null){
-            currentWait.handleEvent(event);
+        final long kept;
+        final long streamed;
+        try {
+            wait.startAt(turn);
+            waiters.register(wait);
+            kept = events.size();
+            streamed = streamingMatcher == null ? 0 : streamingMatcher.getMatches();
+        } finally {
+            sampledTurn.set(turn);
         }
+
+        return streamingMatcher != null ? (int) Math.min(times, streamed) : countMatchingNotifications(wait.getMatcher(), times, kept);
     }
 
     private boolean hasMatchingNotification(final Matcher<Notification> matcher){
-        for(final Notification<T> notification : notifications){
-            if(matcher.matches(notification)){
-                return true;
+        return findMatchingNotification(matcher, false) != NO_EVENT;
+    }
+
+    private long firstMatchingNotification(final Matcher<Notification> matcher){
+        return findMatchingNotification(matcher, true);
+    }
+
+    /**
+     * @param lowest Whether the first matching event is needed, rather than any matching event
+     */
+    private long findMatchingNotification(final Matcher<Notification> matcher, final boolean lowest){
+        final long size = recorded.size();
+        if(index != null){
+            return index.firstMatch(matcher, size);
+        }
+
+        final long first = recorded.firstRetained();
+        if(parallelScan != null && size - first > ParallelScan.CHUNK_SIZE){
+            return parallelScan.find(recorded, matcher, first, size, lowest);
+        }
+
+        final Notification.Kind kind = AwaitRegistry.kindOf(matcher);
+        for(long i = first; i < size; i++){
+            if(matches(matcher, kind, recorded.get(i))){
+                return i;
             }
         }
 
-        return false;
+        return NO_EVENT;
     }
 
-    private void describeEventChain(final Description description, final Notification<T> event){
-        for(final Notification<T> notification : notifications){
-            if(notification == event){
-                description.appendText("\n    -------> ");
-            } else {
-                description.appendText("\n             ");
+    /**
+     * @param limit Counting stops once this many matching events are found
+     * @param size Only the events before this index are counted
+     * @return How many retained events match the matcher, at most the limit
+     */
+    private int countMatchingNotifications(final Matcher<Notification> matcher, final int limit, final long size){
+        int matched = 0;
+        final Notification.Kind kind = AwaitRegistry.kindOf(matcher);
+        for(long i = recorded.firstRetained(); i < size && matched < limit; i++){
+            if(matches(matcher, kind, recorded.get(i))){
+                matched++;
+            }
+        }
+
+        return matched;
+    }
+
+    /**
+     * Checks an event against a matcher, events of a kind the matcher can never match are skipped without calling it
+     * @param kind The kind from {@link AwaitRegistry#kindOf(Matcher)}
+     * @param notification The event, or null when it has been dropped
+     */
+    private static boolean matches(final Matcher<Notification> matcher, final Notification.Kind kind, final Notification<?> notification){
+        return notification != null && (kind == null || kind == notification.getKind()) && matcher.matches(notification);
+    }
+
+    /**
+     * Describes what is known about the events that are not part of the retained chain, this is cheap and bounded in size
+     */
+    private void describeChainHeader(final Description description, final long first){
+        if(!recordsEveryEvent()){
+            description.appendText("\n             ... ")
+                       .appendText(String.valueOf(counter.total()))
+                       .appendText(" events were counted (")
+                       .appendText(String.valueOf(counter.count(Notification.Kind.OnNext)))
+                       .appendText(" onNext, ")
+                       .appendText(String.valueOf(counter.count(Notification.Kind.OnError)))
+                       .appendText(" onError, ")
+                       .appendText(String.valueOf(counter.count(Notification.Kind.OnCompleted)))
+                       .appendText(" onCompleted) but only a sample was kept ...");
+            if(firstEvent != null){
+                description.appendText("\n             first event: ");
+                NotificationDescriber.describeNotification(firstEvent,description);
+                description.appendText("\n             last event: ");
+                NotificationDescriber.describeNotification(lastEvent,description);
             }
-            NotificationDescriber.describeNotification(notification,description);
         }
-        description.appendText("\n");
+
+        if(first > 0){
+            description.appendText("\n             ... ")
+                       .appendText(String.valueOf(first))
+                       .appendText(" earlier events were dropped by the retention limit (")
+                       .appendText(String.valueOf(events.dropped(Notification.Kind.OnNext)))
+                       .appendText(" onNext, ")
+                       .appendText(String.valueOf(events.dropped(Notification.Kind.OnError)))
+                       .appendText(" onError, ")
+                       .appendText(String.valueOf(events.dropped(Notification.Kind.OnCompleted)))
+                       .appendText(" onCompleted) ...");
+        }
+    }
+
+    private void describeTiming(final Description description, final long eventIndex){
+        final long time = events.time(eventIndex);
+        if(time == NO_TIME){
+            return;
+        }
+
+        final long start = subscribedAt != NO_TIME ? subscribedAt : firstEventAt;
+        description.appendText(" at +")
+                   .appendText(formatNanos(time - start))
+                   .appendText(" on ")
+                   .appendText(events.threadName(eventIndex));
+    }
+
+    private static String formatNanos(final long nanos){
+        return String.format(Locale.ROOT, "%.3fms", nanos / 1e6);
+    }
+
+    private void requireTiming(){
+        if(!events.recordsTiming()){
+            throw new IllegalStateException("Timing was not recorded, use TestSubscriberBuilder.recordTiming");
+        }
     }
 
     private void fail(final SelfDescribing expected, final String but){
-        fail(expected,but,null);
+        fail(expected,but,NO_EVENT);
     }
 
-    private void fail(final String expected, final String but, final Notification<T> event){
-        final Description description = new StringDescription();
-        description
+    void fail(final String expected, final String but, final long eventIndex){
+        fail(expected,but,eventIndex,recorded.size());
+    }
+
+    private void fail(final String expected, final String but, final long eventIndex, final long size){
+        fail(expected,but,eventIndex,size,null);
+    }
+
+    /**
+     * @param extra Appended after the event chain when the message is read, or null
+     */
+    private void fail(final String expected, final String but, final long eventIndex, final long size, final SelfDescribing extra){
+        final long first = recorded.firstRetained();
+        final Description header = new StringDescription();
+        header
                 .appendText("\n   Expected: ")
                 .appendText(expected)
                 .appendText("\n        but: ")
                 .appendText(but)
                 .appendText("\nevent chain: ");
-        describeEventChain(description, event);
+        describeChainHeader(header, first);
 
-        Assert.fail(description.toString());
+        // The window of events is copied now, so later events can not push it out of the log, but only described if the message is read
+        final EventChainDescriber.Events window = EventChainDescriber.capture(chainEvents, first, size, eventIndex);
+        throw new EventChainFailure(new SelfDescribing() {
+            @Override
+            public void describeTo(final Description description) {
+                description.appendText(header.toString());
+                EventChainDescriber.describe(description, window, first, size, eventIndex);
+                if(extra != null){
+                    extra.describeTo(description);
+                }
+                description.appendText("\n");
+            }
+        });
     }
 
-    private void fail(final SelfDescribing expected, final String but, final Notification<T> event){
+    private void fail(final SelfDescribing expected, final String but, final long eventIndex){
         final Description description = new StringDescription();
         expected.describeTo(description);
-        fail(expected.toString(),but,event);
+        fail(expected.toString(),but,eventIndex);
+    }
+
+    private void fail(final SelfDescribing expected, final String but, final long eventIndex, final long size){
+        fail(expected.toString(),but,eventIndex,size);
     }
 
     /**
      * <p>Holds the current thread until the subscriber has received a certain number of events that match the given matcher</p>
      * <p>This is useful for waiting until a {@link rx.Observable} is in a certain state before making assumptions against it's events</p>
+     * <p>Matching events recorded before the call count towards the number of events, the recorded events are only scanned once</p>
      * <p><b>Fails:</b> When the proper number of matching events aren't recorded before a timeout occurs</p>
      *
      * @param matcher The matcher used for checking the events
@@ -112,21 +573,291 @@ public class TestSubscriber<T> extends Subscriber<T>{
      * @throws InterruptedException When the thread is interrupted
      */
     public void awaitEvent(final Matcher<Notification> matcher, final int times, final long timeout, final TimeUnit timeUnit) throws InterruptedException {
-        synchronized (notifications){
-            if(hasMatchingNotification(matcher)){
-                return;
+        final long timeoutNanos = timeUnit.toNanos(timeout);
+        final long deadline = System.nanoTime() + timeoutNanos;
+
+        final StreamingMatcher streamingMatcher = counter.streamingMatcherFor(matcher);
+        if(streamingMatcher != null){
+            final boolean matched;
+            if(virtualClock != null){
+                matched = virtualClock.advanceUntil(new VirtualClock.Condition() {
+                    @Override
+                    public boolean isSatisfied() {
+                        return streamingMatcher.getMatches() >= times;
+                    }
+                }, timeoutNanos);
+            } else {
+                matched = streamingMatcher.await(times,timeoutNanos,TimeUnit.NANOSECONDS);
+            }
+
+            if(!matched){
+                fail(matcher,"Timed out waiting for event, " + streamingMatcher.getMatches() + " of " + times + " matching events were recorded");
+            }
+            return;
+        }
+
+        if(!recordsEveryEvent()){
+            awaitOfferedEvent(matcher, times, timeoutNanos, deadline);
+            return;
+        }
+
+        final LogScan scan = new LogScan(matcher, times);
+        if(isReplay()){
+            // No more events will arrive
+            if(!scan.isSatisfied()){
+                fail(matcher,"There were not enough matching events in the replayed trace");
             }
+            return;
+        }
+
+        if(virtualClock != null){
+            if(!virtualClock.advanceUntil(scan, timeoutNanos)){
+                fail(matcher,"Timed out waiting for event");
+            }
+            return;
+        }
 
-            currentWait = new AwaitContext(matcher,times,timeUnit.convert(timeout,TimeUnit.MILLISECONDS));
+        while (!scan.isSatisfied()){
+            if(!published.awaitBeyond(scan.scanned, deadline)){
+                fail(matcher,"Timed out waiting for event");
+            }
         }
+    }
+
+    /**
+     * <p>Counts the events of the log that match a matcher until enough have matched</p>
+     * <p>Recorded events are scanned once, counting every match, and each check then carries on from where the previous one stopped</p>
+     */
+    private final class LogScan implements VirtualClock.Condition {
+        private final Matcher<Notification> matcher;
+        private final Notification.Kind kind;
+        private final int times;
+
+        private long scanned;
+        private int matched = 0;
+
+        LogScan(final Matcher<Notification> matcher, final int times){
+            this.matcher = matcher;
+            this.kind = AwaitRegistry.kindOf(matcher);
+            this.times = times;
 
-        currentWait.await();
+            scanned = recorded.firstRetained();
+            if(index != null && times == 1){
+                // The index answers whether any recorded event matches without scanning them
+                final long size = events.size();
+                if(index.firstMatch(matcher, size) != NO_EVENT){
+                    matched = 1;
+                }
+                scanned = size;
+            }
+        }
 
-        if(currentWait.didTimeout()){
+        @Override
+        public boolean isSatisfied() {
+            final long size = recorded.size();
+            for(scanned = Math.max(scanned, recorded.firstRetained()); scanned < size && matched < times; scanned++){
+                if(matches(matcher, kind, recorded.get(scanned))){
+                    matched++;
+                }
+            }
+
+            return matched >= times;
+        }
+    }
+
+    /**
+     * Waits for events that are offered as they are recorded, for when not every event is kept in the log
+     */
+    private void awaitOfferedEvent(final Matcher<Notification> matcher, final int times, final long timeoutNanos, final long deadline) throws InterruptedException {
+        final AwaitContext wait = new AwaitContext(matcher,times);
+
+        // Only the kept sample can be counted for events from before the call
+        final boolean matched;
+        try {
+            wait.countRecorded(registerOffered(wait, times));
+            matched = virtualClock != null ? virtualClock.advanceUntil(wait, timeoutNanos) : wait.await(deadline);
+        } finally {
+            waiters.unregister(wait);
+        }
+
+        if(!matched){
             fail(matcher,"Timed out waiting for event");
         }
     }
 
+    /**
+     * <p>Waits for the subscriber to receive a certain number of events that match the given matcher, without holding any thread</p>
+     * <p>This is the non blocking counterpart of {@link #awaitEvent(Matcher, int, long, TimeUnit)}, so that many scenarios can be waited on
+     * at once. Nothing happens until the returned {@link Observable} is subscribed to, and each subscription waits separately. Matching
+     * events recorded before subscribing count towards the number of events. The timeout is measured on {@link Schedulers#computation()},
+     * or on the scheduler given to {@link TestSubscriberBuilder#useVirtualTime(rx.schedulers.TestScheduler)}, where it passes as the test
+     * advances virtual time</p>
+     * <p>The result is delivered on the thread that recorded the satisfying event, or on the scheduler's thread when the wait times out</p>
+     *
+     * @param matcher The matcher used for checking the events
+     * @param times How many events need to be seen that match
+     * @param timeout How long to wait before timing out
+     * @param timeUnit The unit to be used for the timeout
+     * @return An Observable that emits this TestSubscriber and completes once enough matching events have been recorded, or fails with
+     * the same {@link AssertionError} as awaitEvent when the timeout passes first
+     */
+    public Observable<TestSubscriber<T>> whenEvent(final Matcher<Notification> matcher, final int times, final long timeout, final TimeUnit timeUnit){
+        final long timeoutNanos = timeUnit.toNanos(timeout);
+        final Scheduler scheduler = virtualClock != null ? virtualClock.getScheduler() : Schedulers.computation();
+
+        return Observable.create(new Observable.OnSubscribe<TestSubscriber<T>>() {
+            @Override
+            public void call(final Subscriber<? super TestSubscriber<T>> subscriber) {
+                new EventWatch(matcher, times, subscriber, scheduler.createWorker()).start(timeoutNanos);
+            }
+        });
+    }
+
+    /**
+     * <p>Waits for the subscriber to receive a certain number of events that match the given matcher, without holding any thread</p>
+     * <p>The wait will timeout after {@value #DEFAULT_TIMEOUT}ms, see {@link #whenEvent(Matcher, int, long, TimeUnit)}</p>
+     *
+     * @param matcher The matcher used for checking the events
+     * @param times How many events need to be seen that match
+     * @return An Observable that emits this TestSubscriber and completes once enough matching events have been recorded
+     */
+    public Observable<TestSubscriber<T>> whenEvent(final Matcher<Notification> matcher, final int times){
+        return whenEvent(matcher,times,DEFAULT_TIMEOUT,TimeUnit.MILLISECONDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private EventWatch[] newWatches(final int length){
+        return (EventWatch[]) new TestSubscriber.EventWatch[length];
+    }
+
+    private synchronized void addWatch(final EventWatch watch){
+        final EventWatch[] current = watches;
+        final EventWatch[] added = Arrays.copyOf(current, current.length + 1);
+        added[current.length] = watch;
+        watches = added;
+    }
+
+    private synchronized void removeWatch(final EventWatch watch){
+        final EventWatch[] current = watches;
+        for(int i = 0; i < current.length; i++){
+            if(current[i] == watch){
+                final EventWatch[] removed = newWatches(current.length - 1);
+                System.arraycopy(current, 0, removed, 0, i);
+                System.arraycopy(current, i + 1, removed, i, current.length - i - 1);
+                watches = removed;
+                return;
+            }
+        }
+    }
+
+    /**
+     * <p>A single subscription to {@link #whenEvent(Matcher, int, long, TimeUnit)}</p>
+     * <p>When every event is kept, the log is scanned incrementally each time an event is published, by whichever thread published it.
+     * Only one thread scans at a time, a thread that finds a scan in progress leaves it to that thread to scan again. Otherwise events are
+     * offered to an {@link AwaitContext} as they are recorded, just as they are for awaitEvent</p>
+     */
+    private final class EventWatch implements Runnable {
+        private final Matcher<Notification> matcher;
+        private final int times;
+        private final Subscriber<? super TestSubscriber<T>> subscriber;
+        private final Scheduler.Worker worker;
+
+        private final LogScan scan;
+        private final AwaitContext offered;
+
+        private final AtomicInteger scanning = new AtomicInteger();
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        EventWatch(final Matcher<Notification> matcher, final int times, final Subscriber<? super TestSubscriber<T>> subscriber, final Scheduler.Worker worker){
+            this.matcher = matcher;
+            this.times = times;
+            this.subscriber = subscriber;
+            this.worker = worker;
+
+            scan = recordsEveryEvent() ? new LogScan(matcher, times) : null;
+            offered = scan == null ? new AwaitContext(matcher, times, this) : null;
+        }
+
+        void start(final long timeoutNanos){
+            subscriber.add(Subscriptions.create(new Action0() {
+                @Override
+                public void call() {
+                    release();
+                }
+            }));
+
+            if(scan != null){
+                addWatch(this);
+                check();
+            } else {
+                offered.countRecorded(registerOffered(offered, times));
+                if(offered.isSatisfied()){
+                    run();
+                }
+            }
+
+            if(isReplay()){
+                // No more events will arrive
+                fail("There were not enough matching events in the replayed trace");
+                return;
+            }
+
+            worker.schedule(new Action0() {
+                @Override
+                public void call() {
+                    fail("Timed out waiting for event");
+                }
+            }, timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Scans any newly published events
+         */
+        void check(){
+            if(scanning.getAndIncrement() != 0){
+                return;
+            }
+
+            do {
+                if(!done.get() && scan.isSatisfied()){
+                    run();
+                }
+            } while (scanning.decrementAndGet() != 0);
+        }
+
+        /**
+         * Completes the wait, once enough matching events have been recorded
+         */
+        @Override
+        public void run() {
+            if(done.compareAndSet(false, true)){
+                release();
+                subscriber.onNext(TestSubscriber.this);
+                subscriber.onCompleted();
+            }
+        }
+
+        private void fail(final String but){
+            if(done.compareAndSet(false, true)){
+                release();
+                try {
+                    TestSubscriber.this.fail(matcher, but);
+                } catch (EventChainFailure e) {
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        private void release(){
+            worker.unsubscribe();
+            if(scan != null){
+                removeWatch(this);
+            } else {
+                waiters.unregister(offered);
+            }
+        }
+    }
+
     /**
      * <p>Holds the current thread until the subscriber has received a certain number of events that match the given matcher</p>
      * <p>This is useful for waiting until a {@link rx.Observable} is in a certain state before making assumptions against it's events</p>
@@ -170,11 +901,79 @@ public class TestSubscriber<T> extends Subscriber<T>{
     }
 
     /**
-     * Begins a {@link AssertionChain} that will make assertions against all of the events that have been recorded
+     * <p>Requests more onNext events from the {@link rx.Observable}</p>
+     * <p>This is only meaningful when the subscriber was built with bounded demand using {@link TestSubscriberBuilder#requestInitially(long)}
+     * or {@link TestSubscriberBuilder#requestInBatches(long)}</p>
+     * @param n How many more onNext events to request
+     */
+    public void requestMore(final long n){
+        if(n < 0){
+            throw new IllegalArgumentException("Can not request a negative number of events");
+        }
+
+        // The demand is known before the request is made, since the Observable may deliver events before request returns
+        contract.requested(n);
+        request(n);
+    }
+
+    /**
+     * @return How many more onNext events have been requested than received, Long.MAX_VALUE when demand is unbounded
+     */
+    public long getOutstandingDemand(){
+        final long requested = contract.getRequested();
+        if(requested == TestSubscriberBuilder.UNBOUNDED){
+            return requested;
+        }
+
+        return Math.max(0, requested - contract.getDelivered());
+    }
+
+    /**
+     * <p>Writes any buffered events to the trace file and closes it, events recorded afterwards are not traced</p>
+     * <p>The trace is also written out whenever an onError or onCompleted event is recorded, so it can be read before it is closed</p>
+     * @throws IOException When writing the trace failed at any point since subscribing, or when a value could not be encoded
+     */
+    public void closeTrace() throws IOException {
+        if(trace == null){
+            throw new IllegalStateException("Events are not traced, use TestSubscriberBuilder.traceTo");
+        }
+
+        trace.close();
+        if(traceFailure != null){
+            throw traceFailure;
+        } else if(encodeFailure.get() != null){
+            throw encodeFailure.get();
+        }
+    }
+
+    /**
+     * @param kind The kind of event to count
+     * @return How many events of the given kind have been recorded, including any that were not kept
+     */
+    public long getEventCount(final Notification.Kind kind){
+        return counter.count(kind);
+    }
+
+    /**
+     * @param matcher A matcher registered with {@link TestSubscriberBuilder#countMatching(Matcher)}
+     * @return How many recorded events have matched the matcher, including any that were not kept
+     */
+    public long getMatchCount(final Matcher<Notification> matcher){
+        final StreamingMatcher streamingMatcher = counter.streamingMatcherFor(matcher);
+        if(streamingMatcher == null){
+            throw new IllegalArgumentException("The matcher was not registered with TestSubscriberBuilder.countMatching");
+        }
+
+        return streamingMatcher.getMatches();
+    }
+
+    /**
+     * <p>Begins a {@link AssertionChain} that will make assertions against all of the events that have been recorded</p>
+     * <p>This takes a snapshot of the events recorded so far without copying them, so it is safe and cheap to call while events are still being recorded</p>
      * @return The AssertionChain to make AssertionsAgainst
      */
     public AssertionChain beginAssertionChain(){
-        return new AssertionChain(notifications.iterator());
+        return new AssertionChain();
     }
 
     /**
@@ -192,54 +991,699 @@ public class TestSubscriber<T> extends Subscriber<T>{
      * @param matcher The matcher to check with
      */
     public void assertDoesNotHaveEvent(final Matcher<Notification> matcher){
-        for(final Notification<T> notification : notifications){
-            if(matcher.matches(notification)){
+        final long match = firstMatchingNotification(matcher);
+        if(match != NO_EVENT){
+            final Description description = new StringDescription();
+            description.appendText("no event matching: ");
+            description.appendDescriptionOf(matcher);
+
+            fail(description.toString(),"There was a matching event",match);
+        }
+    }
+
+    /**
+     * <p>Asserts that the events recorded so far are the same as those of a known good run</p>
+     * <p>OnNext events are compared by value and OnError events by the class and message of their throwable. The baseline is copied once and the
+     * events are compared in a single pass, so this is far cheaper than an {@link AssertionChain} for long chains</p>
+     * <p><b>Fails:</b> When any event differs or either chain is longer, both chains are shown with the first difference highlighted</p>
+     * @param baseline The events of the known good run
+     */
+    public void assertMatchesBaseline(final List<Notification<T>> baseline){
+        compareTo(BaselineComparison.of(baseline), "the baseline", "baseline");
+    }
+
+    /**
+     * <p>Asserts that the events recorded so far are the same as those of a known good run that was traced with {@link TestSubscriberBuilder#traceTo(java.nio.file.Path, ValueCodec)}</p>
+     * <p>OnNext events are compared by value and OnError events by the class and message of their throwable. The events are compared in a
+     * single pass through the trace that allocates nothing beyond decoding it, so this is far cheaper than an {@link AssertionChain} for long chains</p>
+     * <p><b>Fails:</b> When any event differs or either chain is longer, both chains are shown with the first difference highlighted</p>
+     * @param baseline The trace of the known good run
+     */
+    public void assertMatchesBaseline(final TraceReader<T> baseline){
+        compareTo(baseline, "the baseline", "baseline");
+    }
+
+    /**
+     * Fails when the recorded events differ from another chain of events, showing both chains
+     * @param name What the other chain is called in the failure
+     * @param label The label of the other chain in the failure
+     */
+    void compareTo(final RecordedEvents<T> baseline, final String name, final String label){
+        if(!recordsEveryEvent() || recorded.firstRetained() > 0){
+            throw new IllegalStateException("Every event must be kept to compare against " + name);
+        }
+
+        failIfDiverged(baseline, name, label, BaselineComparison.firstDivergence(recorded, recorded.size(), baseline));
+    }
+
+    /**
+     * @param divergence Where the recorded events first diverge from the baseline, from {@link BaselineComparison#firstDivergence(RecordedEvents, long, RecordedEvents)}
+     * @see #compareTo(RecordedEvents, String, String)
+     */
+    void failIfDiverged(final RecordedEvents<T> baseline, final String name, final String label, final long divergence){
+        if(divergence == BaselineComparison.NO_DIVERGENCE){
+            return;
+        }
+
+        final long size = recorded.size();
+        final long baselineSize = baseline.size();
+        final String but;
+        if(divergence == size){
+            but = "The events ended after " + size + " events but " + name + " has " + baselineSize;
+        } else if(divergence == baselineSize){
+            but = "There were " + size + " events but " + name + " ended after " + baselineSize;
+        } else {
+            but = "The events diverged from " + name + " at event " + divergence;
+        }
+
+        fail("The events of " + name,but,divergence < size ? divergence : NO_EVENT,size,new SelfDescribing() {
+            @Override
+            public void describeTo(final Description description) {
+                description.appendText(String.format(Locale.ROOT, "\n%11s: ", label));
+                EventChainDescriber.describe(description, new EventChainDescriber.Events() {
+                    @Override
+                    public Notification<?> get(final long index) {
+                        return baseline.get(index);
+                    }
+
+                    @Override
+                    public void describeExtra(final long index, final Description description) {
+                    }
+                }, 0, baselineSize, divergence < baselineSize ? divergence : NO_EVENT);
+            }
+        });
+    }
+
+    /**
+     * <p>Asserts that the first event arrived within a given amount of time of subscribing</p>
+     * <p>Requires {@link TestSubscriberBuilder#recordTiming()}</p>
+     * <p><b>Fails:</b> When the subscriber was never subscribed, when there was no event, or when the first event arrived too late</p>
+     * @param duration The longest the first event may take
+     * @param timeUnit The unit of the duration
+     */
+    public void assertFirstEventWithin(final long duration, final TimeUnit timeUnit){
+        requireTiming();
+
+        final String expected = "First event within " + formatNanos(timeUnit.toNanos(duration)) + " of subscribing";
+        if(subscribedAt == NO_TIME){
+            fail(expected,"The subscriber was never subscribed",NO_EVENT);
+        } else if(firstEventAt == NO_TIME){
+            fail(expected,"There were no events",NO_EVENT);
+        } else if(firstEventAt - subscribedAt > timeUnit.toNanos(duration)){
+            fail(expected,"The first event arrived after " + formatNanos(firstEventAt - subscribedAt),0);
+        }
+    }
+
+    /**
+     * <p>Asserts that a percentile of the times between consecutive events is within a given amount of time</p>
+     * <p>For example {@code assertInterArrivalPercentile(99, 5, TimeUnit.MILLISECONDS)} asserts that 99% of events arrived within 5ms of the event before them.
+     * Only retained events are considered. Requires {@link TestSubscriberBuilder#recordTiming()}</p>
+     * <p><b>Fails:</b> When there are fewer than two events, or when the percentile is above the given time. The event that followed the longest gap is highlighted</p>
+     * @param percentile The percentile to check, above 0 and up to 100
+     * @param max The longest the percentile may be
+     * @param timeUnit The unit of the max
+     */
+    public void assertInterArrivalPercentile(final double percentile, final long max, final TimeUnit timeUnit){
+        requireTiming();
+        if(percentile <= 0 || percentile > 100){
+            throw new IllegalArgumentException("The percentile must be above 0 and up to 100");
+        }
+
+        final String expected = "The " + percentile + " percentile of inter-arrival times within " + formatNanos(timeUnit.toNanos(max));
+        final long size = events.size();
+        final long first = events.firstRetained();
+        if(size - first < 2){
+            fail(expected,"There were fewer than two events",NO_EVENT,size);
+        }
+
+        final long[] gaps = new long[(int) (size - first - 1)];
+        int count = 0;
+        long longestGapIndex = NO_EVENT;
+        long longestGap = -1;
+        long previous = events.time(first);
+        for(long i = first + 1; i < size; i++){
+            final long time = events.time(i);
+            if(time == NO_TIME || previous == NO_TIME){
+                // Dropped while the gaps were being measured
+                previous = time;
+                continue;
+            }
+
+            final long gap = time - previous;
+            gaps[count++] = gap;
+            if(gap > longestGap){
+                longestGap = gap;
+                longestGapIndex = i;
+            }
+            previous = time;
+        }
+
+        if(count == 0){
+            fail(expected,"There were fewer than two events",NO_EVENT,size);
+        }
+
+        Arrays.sort(gaps, 0, count);
+        final int rank = Math.max(0, (int) Math.ceil(percentile / 100 * count) - 1);
+        if(gaps[rank] > timeUnit.toNanos(max)){
+            fail(expected,"The percentile was " + formatNanos(gaps[rank]) + ", the longest gap was " + formatNanos(longestGap),longestGapIndex,size);
+        }
+    }
+
+    /**
+     * <p>Asserts that every retained event was delivered on a thread whose name matches the given matcher</p>
+     * <p>Requires {@link TestSubscriberBuilder#recordTiming()}</p>
+     * <p><b>Fails:</b> When any event was delivered on a thread whose name does not match, the first such event is highlighted</p>
+     * @param threadNameMatcher The matcher to check thread names with
+     */
+    public void assertEveryEventOnThread(final Matcher<String> threadNameMatcher){
+        requireTiming();
+
+        final long size = events.size();
+        for(long i = events.firstRetained(); i < size; i++){
+            final String threadName = events.threadName(i);
+            if(threadName != null && !threadNameMatcher.matches(threadName)){
                 final Description description = new StringDescription();
-                description.appendText("no event matching: ");
-                description.appendDescriptionOf(matcher);
+                description.appendText("every event on a thread named ");
+                description.appendDescriptionOf(threadNameMatcher);
 
-                fail(description.toString(),"There was a matching event",notification);
+                fail(description.toString(),"An event was delivered on " + threadName,i,size);
             }
         }
     }
 
+    /**
+     * <p>Asserts that every retained event was delivered on a thread of {@link rx.schedulers.Schedulers#computation()}</p>
+     * <p>Requires {@link TestSubscriberBuilder#recordTiming()}</p>
+     * <p><b>Fails:</b> When any event was delivered on another thread, the first such event is highlighted</p>
+     */
+    public void assertEveryEventOnComputationThread(){
+        assertEveryEventOnThread(startsWith(COMPUTATION_THREAD_PREFIX));
+    }
+
+    /**
+     * <p>Asserts how many more onNext events have been requested than received</p>
+     * <p><b>Fails:</b> When the outstanding demand is different</p>
+     * @param expected The expected outstanding demand
+     */
+    public void assertOutstandingDemand(final long expected){
+        final long outstanding = getOutstandingDemand();
+        if(outstanding != expected){
+            fail("An outstanding demand of " + expected,"The outstanding demand was " + outstanding,NO_EVENT);
+        }
+    }
+
+    /**
+     * <p>Asserts that the {@link rx.Observable} never delivered more onNext events than were requested</p>
+     * <p>An operator receiving these events would have failed with a {@link rx.exceptions.MissingBackpressureException}</p>
+     * <p><b>Fails:</b> When more onNext events were received than were requested, the first event over the demand is highlighted</p>
+     */
+    public void assertNoOverproduction(){
+        final long overproduced = contract.count(ContractValidator.Violation.EXCESS_ON_NEXT);
+        if(overproduced > 0){
+            final long eventIndex = recordsEveryEvent() ? contract.firstSequence(ContractValidator.Violation.EXCESS_ON_NEXT) : NO_EVENT;
+            fail("No more onNext events than were requested",
+                 contract.getDelivered() + " onNext events were received but only " + contract.getRequested() + " were requested",
+                 eventIndex);
+        }
+    }
+
+    /**
+     * <p>Asserts that the {@link rx.Observable} has kept its contract for every event recorded so far</p>
+     * <p>Every event is checked as it is recorded, including events that were not kept, so this assertion takes constant time.
+     * The earliest violation is highlighted in the event chain</p>
+     * <p><b>Fails:</b> When events were delivered from more than one thread at once, when any event followed an onError or onCompleted event,
+     * or when more onNext events were received than were requested</p>
+     */
     public void assertWellBehaved(){
-        for (int i = 0; i < notifications.size(); i++) {
-            final Notification<T> notification = notifications.get(i);
+        final ContractValidator.Violation violation = contract.firstViolation();
+        if(violation == null){
+            return;
+        }
+
+        final StringBuilder but = new StringBuilder(violation.getDescription());
+        if(violation == ContractValidator.Violation.EXCESS_ON_NEXT){
+            but.append(", ").append(contract.getRequested()).append(" were requested but ").append(contract.getDelivered()).append(" were received");
+        }
+        final long count = contract.count(violation);
+        but.append(" (").append(count).append(count == 1 ? " time)" : " times)");
+        if(violation == ContractValidator.Violation.EVENT_AFTER_ERROR || violation == ContractValidator.Violation.EVENT_AFTER_COMPLETION){
+            but.append(", the Observable terminated at event ").append(contract.terminalSequence());
+        }
+
+        fail("A well behaved Observable",but.toString(),recordsEveryEvent() ? contract.firstSequence(violation) : NO_EVENT);
+    }
+
+    /**
+     * <p>Asserts that every onNext value recorded so far was in order within its partition, by each ordering registered with
+     * {@link TestSubscriberBuilder#checkOrderPerKey(rx.functions.Func1, rx.functions.Func2)}</p>
+     * <p>Every value is checked as it is recorded, including values that were not kept, so this assertion takes constant time.
+     * The earliest value that was out of order is highlighted in the event chain</p>
+     * <p><b>Fails:</b> When any value was out of order with the previous value of the same key</p>
+     */
+    public void assertOrderedPerKey(){
+        if(partitionInvariants.isEmpty()){
+            throw new IllegalStateException("No ordering was checked, use TestSubscriberBuilder.checkOrderPerKey");
+        }
 
-            if(notification.isOnError() && i != (notifications.size() - 1)){
-                fail("A well behaved Observable","Received more events after an onError event",notifications.get(i));
-            } else if(notification.isOnCompleted() && i != (notifications.size() - 1)){
-                fail("A well behaved Observable","Received more events after an onCompleted event",notifications.get(i));
+        for(final PartitionInvariant<T> invariant : partitionInvariants){
+            failOnCallback(invariant.failure(), "Values in order within each key", "The key extractor or ordering");
+        }
+
+        PartitionInvariant<T> first = null;
+        long firstSequence = PartitionInvariant.NO_EVENT;
+        for(final PartitionInvariant<T> invariant : partitionInvariants){
+            final long sequence = invariant.firstSequence();
+            if(sequence != PartitionInvariant.NO_EVENT && (first == null || sequence < firstSequence)){
+                first = invariant;
+                firstSequence = sequence;
             }
         }
+
+        if(first != null){
+            final long count = first.count();
+            fail("Values in order within each key",
+                 first.describeFirst() + " (" + count + (count == 1 ? " time)" : " times)"),
+                 recordsEveryEvent() ? firstSequence : NO_EVENT);
+        }
     }
 
-    private final class AwaitContext{
-        private final Matcher<Notification> matcher;
-        private final long timeout;
+    /**
+     * Fails when a function given to the builder threw while values were recorded, with what it first threw as the cause
+     * @param callback What the function is called in the failure
+     */
+    private void failOnCallback(final CallbackFailure failure, final String expected, final String callback){
+        final RuntimeException exception = failure.exception();
+        if(exception == null){
+            return;
+        }
+
+        final long count = failure.count();
+        try {
+            fail(expected,
+                 callback + " threw " + exception + " (" + count + (count == 1 ? " time)" : " times)"),
+                 recordsEveryEvent() ? failure.sequence() : NO_EVENT);
+        } catch (EventChainFailure e) {
+            e.initCause(exception);
+            throw e;
+        }
+    }
 
-        private final CountDownLatch countDownLatch;
+    /**
+     * @param configured Whether the aggregate is configured, which also means there is an aggregator
+     * @param option The builder option that configures the aggregate
+     * @return The aggregator, once it is known that every value was aggregated
+     */
+    private ValueAggregator<T> requireAggregate(final boolean configured, final String option){
+        if(!configured){
+            throw new IllegalStateException("Values were not aggregated, use TestSubscriberBuilder." + option);
+        }
+        failOnCallback(aggregator.failure(), "Every value to be aggregated", "The numeric view or hash code of a value");
+        return aggregator;
+    }
 
-        AwaitContext(final Matcher<Notification> matcher, final int times, final long timeout){
-            this.matcher = matcher;
-            this.timeout = timeout;
+    /**
+     * @return The count, sum, mean, min and max of the numeric view of every onNext value recorded so far. Requires
+     * {@link TestSubscriberBuilder#aggregateValues(rx.functions.Func1)}
+     */
+    public ValueStatistics getValueStatistics(){
+        return requireAggregate(aggregator != null && aggregator.aggregatesNumbers(), "aggregateValues").statistics();
+    }
+
+    /**
+     * @return How many onNext values fell into each bucket of the histogram, in order. Requires
+     * {@link TestSubscriberBuilder#histogram(double, double, int)}
+     */
+    public long[] getHistogram(){
+        return requireAggregate(aggregator != null && aggregator.hasHistogram(), "histogram").histogram();
+    }
+
+    /**
+     * @return The estimated number of distinct onNext values recorded so far. Requires {@link TestSubscriberBuilder#estimateDistinct()}
+     */
+    public long getDistinctEstimate(){
+        return requireAggregate(aggregator != null && aggregator.estimatesDistinct(), "estimateDistinct").distinctEstimate();
+    }
+
+    /**
+     * <p>Asserts that the numeric views of the onNext values recorded so far add up to a given sum</p>
+     * <p>Every value is aggregated as it is recorded, so this assertion takes constant time. Requires {@link TestSubscriberBuilder#aggregateValues(rx.functions.Func1)}</p>
+     * <p><b>Fails:</b> When the sum differs from the expected sum by more than the tolerance</p>
+     * @param expected The expected sum
+     * @param tolerance How far the sum may be from the expected sum, to allow for floating point rounding
+     */
+    public void assertValueSum(final double expected, final double tolerance){
+        final ValueStatistics statistics = getValueStatistics();
+        if(!(Math.abs(statistics.getSum() - expected) <= tolerance)){
+            fail("Values summing to " + expected + " (within " + tolerance + ")",
+                 "The values summed to " + statistics.getSum() + " over " + statistics.getCount() + " values",
+                 NO_EVENT);
+        }
+    }
+
+    /**
+     * <p>Asserts that the mean of the numeric views of the onNext values recorded so far is a given mean</p>
+     * <p>Every value is aggregated as it is recorded, so this assertion takes constant time. Requires {@link TestSubscriberBuilder#aggregateValues(rx.functions.Func1)}</p>
+     * <p><b>Fails:</b> When there were no values, or when the mean differs from the expected mean by more than the tolerance</p>
+     * @param expected The expected mean
+     * @param tolerance How far the mean may be from the expected mean
+     */
+    public void assertMeanValue(final double expected, final double tolerance){
+        final ValueStatistics statistics = getValueStatistics();
+        final String expectation = "A mean value of " + expected + " (within " + tolerance + ")";
+        if(statistics.getCount() == 0){
+            fail(expectation,"There were no values",NO_EVENT);
+        } else if(!(Math.abs(statistics.getMean() - expected) <= tolerance)){
+            fail(expectation,"The mean was " + statistics.getMean() + " over " + statistics.getCount() + " values",NO_EVENT);
+        }
+    }
+
+    /**
+     * <p>Asserts that the numeric views of every onNext value recorded so far are within a range</p>
+     * <p>Only the smallest and largest values are kept as values are recorded, so this assertion takes constant time.
+     * Requires {@link TestSubscriberBuilder#aggregateValues(rx.functions.Func1)}</p>
+     * <p><b>Fails:</b> When the smallest value is below the range or the largest value is above it, that value is highlighted</p>
+     * @param min The smallest value allowed
+     * @param max The largest value allowed
+     */
+    public void assertValuesWithin(final double min, final double max){
+        final ValueStatistics statistics = getValueStatistics();
+        final String expected = "Values within [" + min + ", " + max + "]";
+        if(statistics.getCount() == 0){
+            return;
+        }
+
+        if(!(statistics.getMin() >= min)){
+            fail(expected,"The smallest value was " + statistics.getMin(),recordsEveryEvent() ? aggregator.minSequence() : NO_EVENT);
+        } else if(!(statistics.getMax() <= max)){
+            fail(expected,"The largest value was " + statistics.getMax(),recordsEveryEvent() ? aggregator.maxSequence() : NO_EVENT);
+        }
+    }
+
+    /**
+     * <p>Asserts that about a given number of distinct onNext values have been recorded</p>
+     * <p>The number of distinct values is estimated as values are recorded, so this assertion takes constant time. The estimate is typically
+     * within 1% of the true count, so the allowed error should not be much smaller than that. Requires {@link TestSubscriberBuilder#estimateDistinct()}</p>
+     * <p><b>Fails:</b> When the estimate differs from the expected count by more than the allowed error</p>
+     * @param expected The expected number of distinct values
+     * @param relativeError How far the estimate may be from the expected count, as a fraction of it
+     */
+    public void assertDistinctValues(final long expected, final double relativeError){
+        final long estimate = getDistinctEstimate();
+        if(Math.abs(estimate - expected) > relativeError * expected){
+            fail(String.format(Locale.ROOT, "About %d distinct values (within %.1f%%)", expected, relativeError * 100),
+                 "An estimated " + estimate + " distinct values were recorded",
+                 NO_EVENT);
+        }
+    }
 
-            countDownLatch = new CountDownLatch(times);
+    /**
+     * <p>Asserts that no onNext value has been recorded more than once, comparing values with equals</p>
+     * <p>Values are filtered as they are recorded, so only the few that may be duplicates are checked against the kept events.
+     * Requires {@link TestSubscriberBuilder#detectDuplicates(long)}, and values recorded at the same moment by concurrent producers may go undetected</p>
+     * <p><b>Fails:</b> When any value was recorded more than once, the first repeat is highlighted</p>
+     */
+    public void assertNoDuplicateValues(){
+        final Set<Object> candidates = requireAggregate(aggregator != null && aggregator.detectsDuplicates(), "detectDuplicates").duplicateCandidates();
+        if(candidates.isEmpty()){
+            return;
         }
 
-        private void handleEvent(final Notification notification){
-            if(matcher.matches(notification)){
-                countDownLatch.countDown();
+        final long size = recorded.size();
+        final Map<Object, Long> firstSeen = new HashMap<>();
+        long duplicates = 0;
+        long firstRepeat = NO_EVENT;
+        long firstOriginal = NO_EVENT;
+        for(long i = 0; i < size; i++){
+            final Notification<T> notification = recorded.get(i);
+            if(!notification.isOnNext()){
+                continue;
+            }
+
+            final Object value = notification.getValue() == null ? ValueAggregator.NULL_VALUE : notification.getValue();
+            if(!candidates.contains(value)){
+                continue;
+            }
+
+            final Long previous = firstSeen.get(value);
+            if(previous == null){
+                firstSeen.put(value, i);
+            } else {
+                duplicates++;
+                if(firstRepeat == NO_EVENT){
+                    firstRepeat = i;
+                    firstOriginal = previous;
+                }
             }
         }
 
-        private void await() throws InterruptedException {
-            countDownLatch.await(timeout, TimeUnit.MILLISECONDS);
+        if(firstRepeat != NO_EVENT){
+            fail("No value received more than once",
+                 "The value was already received at event " + firstOriginal + " (" + duplicates + (duplicates == 1 ? " duplicate)" : " duplicates)"),
+                 firstRepeat,
+                 size);
         }
+    }
+
+    /**
+     * <p>Asserts that the numeric views of the onNext values recorded so far are spread evenly over the buckets of the histogram</p>
+     * <p>Values are counted into the histogram as they are recorded, so this assertion takes time proportional to the number of buckets.
+     * Requires {@link TestSubscriberBuilder#histogram(double, double, int)}</p>
+     * <p><b>Fails:</b> When there were no values, or when any bucket's count is further from the mean count than the tolerance allows.
+     * The histogram is shown after the event chain</p>
+     * @param tolerance How far each bucket's count may be from the mean count, as a fraction of it
+     */
+    public void assertUniformHistogram(final double tolerance){
+        final ValueAggregator<T> values = requireAggregate(aggregator != null && aggregator.hasHistogram(), "histogram");
+        final long[] counts = values.histogram();
+        final String expected = String.format(Locale.ROOT, "Values spread evenly over %d buckets (within %.1f%%)", counts.length, tolerance * 100);
+
+        long total = 0;
+        for(final long count : counts){
+            total += count;
+        }
+        if(total == 0){
+            fail(expected,"There were no values",NO_EVENT);
+        }
+
+        final double mean = (double) total / counts.length;
+        int worst = 0;
+        for(int i = 1; i < counts.length; i++){
+            if(Math.abs(counts[i] - mean) > Math.abs(counts[worst] - mean)){
+                worst = i;
+            }
+        }
+
+        final double deviation = Math.abs(counts[worst] - mean) / mean;
+        if(deviation > tolerance){
+            final double low = values.histogramLow();
+            final double width = values.histogramWidth();
+            fail(expected,
+                 String.format(Locale.ROOT, "Bucket %d [%s, %s) held %d values, %.1f%% from the mean of %.1f",
+                               worst, low + worst * width, low + (worst + 1) * width, counts[worst], deviation * 100, mean),
+                 NO_EVENT,
+                 recorded.size(),
+                 new SelfDescribing() {
+                     @Override
+                     public void describeTo(final Description description) {
+                         description.appendText(String.format(Locale.ROOT, "\n%11s: ", "histogram")).appendText(Arrays.toString(counts));
+                     }
+                 });
+        }
+    }
+
+    private RateTracker requireRates(){
+        if(rates == null){
+            throw new IllegalStateException("Rates were not tracked, use TestSubscriberBuilder.trackRate");
+        }
+        return rates;
+    }
+
+    /**
+     * @return How many whole slices a window covers, rounding up
+     */
+    private int windowSlices(final long window, final TimeUnit timeUnit){
+        final long sliceNanos = requireRates().sliceNanos();
+        final long slices = (timeUnit.toNanos(window) + sliceNanos - 1) / sliceNanos;
+        if(slices < 1 || slices > rates.slices()){
+            throw new IllegalArgumentException("The window must be at least one slice and at most the " + rates.slices() + " slices that are held");
+        }
+        return (int) slices;
+    }
+
+    private String describeRateExpectation(final double eventsPerSecond, final int window){
+        return String.format(Locale.ROOT, "At least %.1f events/s over %s", eventsPerSecond, formatNanos(window * rates.sliceNanos()));
+    }
+
+    /**
+     * @return Whether the most recent complete window of slices has at least the given rate
+     */
+    private boolean hasRate(final double eventsPerSecond, final int window){
+        if(rates.origin() == RateTracker.NO_TIME){
+            return false;
+        }
+
+        final long now = now();
+        final long to = rates.endSlice(now);
+        return to - window >= rates.firstHeldSlice(now) && rates.rate(to - window, to) >= eventsPerSecond;
+    }
+
+    /**
+     * Takes a snapshot of the rate of each slice, up to the most recent {@value #TIMELINE_SLICES} slices before the end slice,
+     * to be shown after the event chain
+     */
+    private SelfDescribing describeTimeline(final long from, final long to){
+        final long sliceNanos = rates.sliceNanos();
+        final long start = Math.max(from, to - TIMELINE_SLICES);
+        final long[] perSecond = new long[(int) Math.max(0, to - start)];
+        for(int i = 0; i < perSecond.length; i++){
+            perSecond[i] = Math.round(rates.count(start + i) * 1e9 / sliceNanos);
+        }
+
+        return new SelfDescribing() {
+            @Override
+            public void describeTo(final Description description) {
+                description.appendText(String.format(Locale.ROOT, "\n%11s: ", "rate"))
+                           .appendText("events/s per " + formatNanos(sliceNanos) + " from +" + formatNanos(start * sliceNanos) + " ")
+                           .appendText(Arrays.toString(perSecond));
+            }
+        };
+    }
+
+    /**
+     * <p>Holds the current thread until onNext events have been recorded at a given rate over the most recent window, for example until
+     * a stream has warmed up</p>
+     * <p>The wait will timeout after {@value #DEFAULT_TIMEOUT}ms, see {@link #awaitRate(double, long, TimeUnit, long, TimeUnit)}</p>
+     * @param eventsPerSecond The rate to wait for
+     * @param window How long the rate must be held for, rounded up to whole slices
+     * @param timeUnit The unit of the window
+     * @throws InterruptedException When the thread is interrupted
+     */
+    public void awaitRate(final double eventsPerSecond, final long window, final TimeUnit timeUnit) throws InterruptedException {
+        awaitRate(eventsPerSecond, window, timeUnit, DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <p>Holds the current thread until onNext events have been recorded at a given rate over the most recent window, for example until
+     * a stream has warmed up</p>
+     * <p>The rate is measured over the most recent complete slices, so it is checked once as each slice completes rather than as each event
+     * is recorded. Requires {@link TestSubscriberBuilder#trackRate()}</p>
+     * <p><b>Fails:</b> When the rate is not reached before a timeout occurs or the {@link rx.Observable} ends. The rate of each recent slice is
+     * shown after the event chain</p>
+     * @param eventsPerSecond The rate to wait for
+     * @param window How long the rate must be held for, rounded up to whole slices
+     * @param windowUnit The unit of the window
+     * @param timeout How long to wait before timing out
+     * @param timeoutUnit The unit of the timeout
+     * @throws InterruptedException When the thread is interrupted
+     */
+    public void awaitRate(final double eventsPerSecond, final long window, final TimeUnit windowUnit,
+                          final long timeout, final TimeUnit timeoutUnit) throws InterruptedException {
+        final int slices = windowSlices(window, windowUnit);
+        final long timeoutNanos = timeoutUnit.toNanos(timeout);
+
+        // An ended Observable can not reach the rate any more, so the wait stops there too
+        final VirtualClock.Condition settled = new VirtualClock.Condition() {
+            @Override
+            public boolean isSatisfied() {
+                return hasRate(eventsPerSecond, slices) || rates.hasEnded();
+            }
+        };
+
+        if(virtualClock != null){
+            virtualClock.advanceUntil(settled, timeoutNanos);
+        } else {
+            final long deadline = System.nanoTime() + timeoutNanos;
+            while (!settled.isSatisfied()){
+                final long remaining = deadline - System.nanoTime();
+                if(remaining <= 0){
+                    break;
+                }
+
+                // The rate only changes as a slice completes
+                final long origin = rates.origin();
+                final long untilNextSlice = origin == RateTracker.NO_TIME
+                        ? rates.sliceNanos()
+                        : rates.sliceNanos() - (System.nanoTime() - origin) % rates.sliceNanos();
+                TimeUnit.NANOSECONDS.sleep(Math.min(remaining, untilNextSlice));
+            }
+        }
+
+        if(hasRate(eventsPerSecond, slices)){
+            return;
+        }
+
+        final String expected = describeRateExpectation(eventsPerSecond, slices);
+        final String reason = rates.hasEnded() ? "The Observable ended" : "Timed out waiting for the rate";
+        if(rates.origin() == RateTracker.NO_TIME){
+            fail(expected,reason + ", there were no events",NO_EVENT);
+        }
+
+        final long now = now();
+        final long to = rates.endSlice(now);
+        final long from = rates.firstHeldSlice(now);
+        final String but = to - slices < from
+                ? reason + ", only " + formatNanos((to - from) * rates.sliceNanos()) + " of complete slices were recorded"
+                : String.format(Locale.ROOT, "%s, the most recent rate was %.1f events/s", reason, rates.rate(to - slices, to));
+        fail(expected,but,NO_EVENT,recorded.size(),describeTimeline(from, to));
+    }
+
+    /**
+     * <p>Asserts that onNext events were recorded at no less than a given rate over every window of the held slices, from the first event
+     * until the events ended or the most recent complete slice</p>
+     * <p>Every event is counted into its slice as it is recorded, so this assertion takes time proportional to the number of held slices.
+     * Requires {@link TestSubscriberBuilder#trackRate()}</p>
+     * <p><b>Fails:</b> When fewer slices than the window have completed, or when the rate over any window was below the given rate.
+     * The rate of each slice up to the slowest window is shown after the event chain</p>
+     * @param eventsPerSecond The lowest rate allowed
+     * @param window How long each window is, rounded up to whole slices
+     * @param timeUnit The unit of the window
+     */
+    public void assertSustainedThroughput(final double eventsPerSecond, final long window, final TimeUnit timeUnit){
+        final int slices = windowSlices(window, timeUnit);
+        final String expected = describeRateExpectation(eventsPerSecond, slices) + " throughout";
+        if(rates.origin() == RateTracker.NO_TIME){
+            fail(expected,"There were no events",NO_EVENT);
+        }
+
+        final long now = now();
+        final long to = rates.endSlice(now);
+        final long from = rates.firstHeldSlice(now);
+        if(to - from < slices){
+            fail(expected,"Only " + formatNanos((to - from) * rates.sliceNanos()) + " of complete slices were recorded",
+                 NO_EVENT,recorded.size(),describeTimeline(from, to));
+        }
+
+        final long slowest = rates.slowestWindow(from, to, slices);
+        final double rate = rates.rate(slowest, slowest + slices);
+        if(rate < eventsPerSecond){
+            fail(expected,
+                 String.format(Locale.ROOT, "The rate fell to %.1f events/s in the window from +%s", rate, formatNanos(slowest * rates.sliceNanos())),
+                 NO_EVENT,
+                 recorded.size(),
+                 describeTimeline(from, slowest + slices));
+        }
+    }
+
+    /**
+     * <p>Asserts that events never stopped arriving for longer than a given amount of time, from the first event onwards</p>
+     * <p>The longest gap between consecutive events is kept as events are recorded, so this assertion takes constant time. The time since
+     * the last event also counts until the {@link rx.Observable} ends. Requires {@link TestSubscriberBuilder#trackRate()}</p>
+     * <p><b>Fails:</b> When any gap was longer than the given time, the event that ended the longest gap is highlighted</p>
+     * @param duration The longest gap allowed
+     * @param timeUnit The unit of the duration
+     */
+    public void assertNoStallLongerThan(final long duration, final TimeUnit timeUnit){
+        final long maxNanos = timeUnit.toNanos(duration);
+        final String expected = "No gap between events longer than " + formatNanos(maxNanos);
 
-        private boolean didTimeout(){
-            return countDownLatch.getCount() != 0;
+        final long longest = requireRates().longestGap();
+        final long lastEventAt = rates.lastEventAt();
+        final long ongoing = rates.hasEnded() || lastEventAt == RateTracker.NO_TIME ? 0 : now() - lastEventAt;
+        if(ongoing > maxNanos && ongoing >= longest){
+            fail(expected,"There has been no event for " + formatNanos(ongoing) + " since the last event",NO_EVENT);
+        } else if(longest > maxNanos){
+            fail(expected,"There was a gap of " + formatNanos(longest) + " before the event",
+                 recordsEveryEvent() ? rates.longestGapSequence() : NO_EVENT);
         }
     }
 
@@ -251,10 +1695,11 @@ public class TestSubscriber<T> extends Subscriber<T>{
      */
     public class AssertionChain {
 
-        private Iterator<Notification<T>> iterator;
+        private long position = recorded.firstRetained();
+        private final long end = recorded.size();
 
-        AssertionChain(final Iterator<Notification<T>> iterator){
-            this.iterator = iterator;
+        private boolean hasNext(){
+            return position < end;
         }
 
         /**
@@ -264,15 +1709,18 @@ public class TestSubscriber<T> extends Subscriber<T>{
          * @return the AssertionChain to continue to make assertions against
          */
         public AssertionChain assertNextEvent(final Matcher<Notification> eventMatcher){
-            if(iterator.hasNext()){
-                final Notification<T> event = iterator.next();
-                if(!eventMatcher.matches(event)){
+            if(hasNext()){
+                final long index = position++;
+                final Notification<T> event = recorded.get(index);
+                if(event == null){
+                    fail(eventMatcher,"The event was dropped by the retention limit",NO_EVENT,end);
+                } else if(!eventMatcher.matches(event)){
                     final Description description = new StringDescription();
                     eventMatcher.describeMismatch(event,description);
-                    fail(eventMatcher,description.toString(),event);
+                    fail(eventMatcher,description.toString(),index,end);
                 }
             } else {
-                fail(eventMatcher,"There were no remaining events");
+                fail(eventMatcher,"There were no remaining events",NO_EVENT,end);
             }
 
             return this;
@@ -284,8 +1732,8 @@ public class TestSubscriber<T> extends Subscriber<T>{
          * @return the AssertionChain to continue to make assertions against
          */
         public AssertionChain ignoreNextEvent(){
-            if(iterator.hasNext()){
-                iterator.next();
+            if(hasNext()){
+                position++;
             }
 
             return this;
@@ -298,8 +1746,8 @@ public class TestSubscriber<T> extends Subscriber<T>{
          */
         public AssertionChain ignoreNextEvents(final int count){
             int curr = 0;
-            while (curr < count && iterator.hasNext()){
-                iterator.next();
+            while (curr < count && hasNext()){
+                position++;
                 curr++;
             }
 
@@ -316,14 +1764,15 @@ public class TestSubscriber<T> extends Subscriber<T>{
          */
         public AssertionChain ignoreUntilEvent(final Matcher<Notification> matcher, final int times){
             int curr = 0;
+            final Notification.Kind kind = AwaitRegistry.kindOf(matcher);
 
             while (curr < times){
-                if(iterator.hasNext()){
-                    if(matcher.matches(iterator.next())) {
+                if(hasNext()){
+                    if(matches(matcher, kind, recorded.get(position++))) {
                         curr++;
                     }
                 } else {
-                    fail(matcher,"There was no such event");
+                    fail(matcher,"There was no such event",NO_EVENT,end);
                 }
             }
 
@@ -342,8 +1791,8 @@ public class TestSubscriber<T> extends Subscriber<T>{
         }
 
         public AssertionChain assertNoRemainingEvents(){
-            if(iterator.hasNext()){
-                fail("No remaining events","There were remaining events", iterator.next());
+            if(hasNext()){
+                fail("No remaining events","There were remaining events", position, end);
             }
 
             return this;
@@ -0,0 +1,407 @@
+package com.rxc;
+
+import org.hamcrest.Matcher;
+import rx.Notification;
+import rx.functions.Func1;
+import rx.functions.Func2;
+import rx.schedulers.TestScheduler;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fluent builder for {@link TestSubscriber}s that need more than the default recording behaviour
+ * @param <T> The type of values that will be emitted by the {@link rx.Observable}
+ */
+public class TestSubscriberBuilder<T> {
+    static final long UNBOUNDED = Long.MAX_VALUE;
+
+    boolean indexEvents = false;
+    long maxRetained = EventLog.UNLIMITED;
+    long maxAgeNanos = EventLog.UNLIMITED;
+    long sampleInterval = 1;
+    boolean recordTiming = false;
+    long initialRequest = UNBOUNDED;
+    long batchSize = 0;
+    long processingNanos = 0;
+    TestScheduler virtualTime = null;
+    long virtualTimeStepNanos = 0;
+    final List<Matcher<Notification>> countedMatchers = new ArrayList<>();
+    Path tracePath = null;
+    ValueCodec<T> traceCodec = null;
+    ForkJoinPool matcherPool = null;
+    final List<PartitionInvariant<T>> partitionInvariants = new ArrayList<>();
+    Func1<? super T, ? extends Number> valueToNumber = null;
+    double histogramLow = 0;
+    double histogramHigh = 0;
+    int histogramBuckets = 0;
+    boolean estimateDistinct = false;
+    long expectedDistinct = 0;
+    long rateSliceNanos = 0;
+    int rateSlices = 0;
+
+    /**
+     * <p>Indexes recorded events by kind, OnNext value and OnError class</p>
+     * <p>This makes {@link TestSubscriber#assertHasEvent(org.hamcrest.Matcher)}, {@link TestSubscriber#assertDoesNotHaveEvent(org.hamcrest.Matcher)}
+     * and {@link TestSubscriber#awaitEvent(org.hamcrest.Matcher)} answer {@link com.rxc.matchers.NotificationMatchers#isValue(Object)} and
+     * {@link com.rxc.matchers.NotificationMatchers#isError(Class)} in constant time, and lets other kind specific matchers skip events of other kinds.
+     * The index costs memory for every recorded event, so it is only worth it when many assertions are made against many events</p>
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> indexEvents(){
+        indexEvents = true;
+        return this;
+    }
+
+    /**
+     * <p>Only keeps the most recent events, older events are dropped as new events are recorded</p>
+     * <p>Use this for long running or infinite {@link rx.Observable}s that would otherwise exhaust the heap. Assertions and
+     * event chains only see the retained events, and event chains state how many events were dropped</p>
+     * @param count How many of the most recent events to keep
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> retainLast(final long count){
+        if(count < 1){
+            throw new IllegalArgumentException("At least one event must be retained");
+        }
+        maxRetained = count;
+        return this;
+    }
+
+    /**
+     * <p>Only keeps events recorded within a given amount of time of the most recent event, older events are dropped as new events are recorded</p>
+     * <p>Use this for long running or infinite {@link rx.Observable}s that would otherwise exhaust the heap. Assertions and
+     * event chains only see the retained events, and event chains state how many events were dropped</p>
+     * @param duration How long to keep events for
+     * @param timeUnit The unit of the duration
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> retainFor(final long duration, final TimeUnit timeUnit){
+        if(duration < 0){
+            throw new IllegalArgumentException("The retention duration can not be negative");
+        }
+        maxAgeNanos = timeUnit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * <p>Counts events without keeping them</p>
+     * <p>Only the number of events of each kind, the counts of matchers registered with {@link #countMatching(Matcher)} and the first and last
+     * events are kept, so memory stays flat no matter how many events are recorded. This is meant for throughput tests that
+     * do not care about the values themselves</p>
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> countOnly(){
+        sampleInterval = 0;
+        return this;
+    }
+
+    /**
+     * <p>Counts every event but only keeps every k-th one, starting with the first</p>
+     * <p>Assertions and event chains only see the kept sample, while counts and matchers registered with {@link #countMatching(Matcher)}
+     * see every event. Combine this with {@link #retainLast(long)} to also keep the size of the sample flat</p>
+     * @param interval Keep one out of this many events
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> sampleEvery(final long interval){
+        if(interval < 1){
+            throw new IllegalArgumentException("The sample interval must be at least 1");
+        }
+        sampleInterval = interval;
+        return this;
+    }
+
+    /**
+     * <p>Records the time and the thread of every event</p>
+     * <p>This enables the timing assertions such as {@link TestSubscriber#assertFirstEventWithin(long, TimeUnit)}, and event chains
+     * then show when each event arrived relative to subscribing and which thread delivered it. Times and threads are kept in
+     * primitive arrays, costing 16 bytes for every recorded event</p>
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> recordTiming(){
+        recordTiming = true;
+        return this;
+    }
+
+    /**
+     * <p>Requests a given number of onNext events when subscribing, instead of requesting an unbounded number</p>
+     * <p>Further events are only requested by {@link TestSubscriber#requestMore(long)}, or by {@link #requestInBatches(long)} when combined with it.
+     * Use {@link TestSubscriber#assertNoOverproduction()} to check that the {@link rx.Observable} kept to the demand</p>
+     * @param n How many onNext events to request when subscribing, may be 0
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> requestInitially(final long n){
+        if(n < 0){
+            throw new IllegalArgumentException("The initial request can not be negative");
+        }
+        initialRequest = n;
+        return this;
+    }
+
+    /**
+     * <p>Requests onNext events a batch at a time, requesting the next batch each time a whole batch has been received</p>
+     * <p>The first batch is requested when subscribing unless {@link #requestInitially(long)} is also used</p>
+     * @param size How many onNext events to request at a time
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> requestInBatches(final long size){
+        if(size < 1){
+            throw new IllegalArgumentException("The batch size must be at least 1");
+        }
+        batchSize = size;
+        return this;
+    }
+
+    /**
+     * <p>Simulates a slow consumer by holding the delivering thread for a given amount of time after each onNext event is recorded</p>
+     * <p>Any batch refill from {@link #requestInBatches(long)} is only requested once the event has been processed</p>
+     * @param duration How long to process each onNext event for
+     * @param timeUnit The unit of the duration
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> processEachFor(final long duration, final TimeUnit timeUnit){
+        if(duration < 0){
+            throw new IllegalArgumentException("The processing duration can not be negative");
+        }
+        processingNanos = timeUnit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * <p>Waits in virtual time, {@link TestSubscriber#awaitEvent(Matcher, int, long, TimeUnit)} advances the scheduler a millisecond at a time
+     * until enough matching events have been recorded or the timeout has passed in virtual time</p>
+     * <p>This turns the sleeping of debounce, timeout, interval and similar operators into a few milliseconds of work, as long as every such
+     * operator runs on the given scheduler. The scheduler runs its actions on the waiting thread</p>
+     * @param scheduler The scheduler the {@link rx.Observable} under test is timed by
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> useVirtualTime(final TestScheduler scheduler){
+        return useVirtualTime(scheduler, 1, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <p>Waits in virtual time, {@link TestSubscriber#awaitEvent(Matcher, int, long, TimeUnit)} advances the scheduler a step at a time
+     * until enough matching events have been recorded or the timeout has passed in virtual time</p>
+     * <p>Smaller steps find the virtual time an event happened at more precisely, larger steps cover long timeouts with less work</p>
+     * @param scheduler The scheduler the {@link rx.Observable} under test is timed by
+     * @param step How far to advance the scheduler at a time
+     * @param timeUnit The unit of the step
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> useVirtualTime(final TestScheduler scheduler, final long step, final TimeUnit timeUnit){
+        if(step < 1){
+            throw new IllegalArgumentException("The virtual time step must be positive");
+        }
+        virtualTime = scheduler;
+        virtualTimeStepNanos = timeUnit.toNanos(step);
+        return this;
+    }
+
+    /**
+     * <p>Registers a matcher that is checked against every event as it is recorded, keeping only a count of how many events matched</p>
+     * <p>{@link TestSubscriber#awaitEvent(Matcher, int)} called with the same matcher instance waits on this count, so it sees every
+     * matching event since subscribing even when events are not kept</p>
+     * @param matcher The matcher to count matches of
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> countMatching(final Matcher<Notification> matcher){
+        countedMatchers.add(matcher);
+        return this;
+    }
+
+    /**
+     * <p>Writes every event to a binary trace file as it is recorded, including events that are not kept by {@link #countOnly()},
+     * {@link #sampleEvery(long)} or a retention limit</p>
+     * <p>Each event is written with its kind, position, time and thread, OnNext values are written with the given codec and OnError
+     * throwables with Java serialization. Read the trace with {@link TraceReader#open(Path, ValueCodec)} and make assertions against it
+     * with {@link TestSubscriber#replay(TraceReader)}, and call {@link TestSubscriber#closeTrace()} once the {@link rx.Observable} is done</p>
+     * <p>Events are written one at a time, so concurrent producers take turns on the trace, and every onError or onCompleted event waits
+     * for the trace to reach the disk. A value the codec fails to encode is written as null and the failure is reported by closeTrace</p>
+     * @param path The file to write, any existing file is replaced
+     * @param codec The codec to write OnNext values with
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> traceTo(final Path path, final ValueCodec<T> codec){
+        if(path == null || codec == null){
+            throw new IllegalArgumentException("A trace needs both a path and a codec");
+        }
+        tracePath = path;
+        traceCodec = codec;
+        return this;
+    }
+
+    /**
+     * <p>Evaluates the matchers of {@link TestSubscriber#assertHasEvent(Matcher)} and {@link TestSubscriber#assertDoesNotHaveEvent(Matcher)}
+     * across the recorded events in parallel, on a pool shared by every TestSubscriber</p>
+     * <p>This is worth it for expensive matchers, such as deep equality of large values or regular expressions over payloads, checked
+     * against many events. assertHasEvent stops as soon as any event matches, and assertDoesNotHaveEvent still reports the first matching
+     * event. Matchers must be safe to call from several threads at once</p>
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> matchInParallel(){
+        return matchInParallel(ParallelScan.defaultPool());
+    }
+
+    /**
+     * <p>Evaluates the matchers of {@link TestSubscriber#assertHasEvent(Matcher)} and {@link TestSubscriber#assertDoesNotHaveEvent(Matcher)}
+     * across the recorded events in parallel on the given pool</p>
+     * <p>assertHasEvent stops as soon as any event matches, and assertDoesNotHaveEvent still reports the first matching event.
+     * Matchers must be safe to call from several threads at once</p>
+     * @param pool The pool to evaluate matchers on
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> matchInParallel(final ForkJoinPool pool){
+        if(pool == null){
+            throw new IllegalArgumentException("The pool can not be null");
+        }
+        matcherPool = pool;
+        return this;
+    }
+
+    /**
+     * <p>Checks that onNext values are in order within each partition as they are recorded, for example that sequence numbers strictly
+     * increase within each key of a {@link rx.Observable#groupBy(rx.functions.Func1)}</p>
+     * <p>Each value is checked against the previous value with the same key, so checking takes constant time per value and covers every
+     * value, including values that are not kept. Only the latest value of each key is held. Use {@link TestSubscriber#assertOrderedPerKey()}
+     * to assert that no value was out of order. This may be called more than once to check several orderings</p>
+     * @param keyExtractor Gives the partition key of a value, keys are compared with equals
+     * @param inOrder Given the previous value and the next value with the same key, whether they are in order
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> checkOrderPerKey(final Func1<? super T, ?> keyExtractor, final Func2<? super T, ? super T, Boolean> inOrder){
+        if(keyExtractor == null || inOrder == null){
+            throw new IllegalArgumentException("Checking order needs both a key extractor and an ordering");
+        }
+        partitionInvariants.add(new PartitionInvariant<>(keyExtractor, inOrder));
+        return this;
+    }
+
+    /**
+     * <p>Aggregates a numeric view of every onNext value as it is recorded, keeping only their count, sum, min and max</p>
+     * <p>Every value is aggregated, including values that are not kept, in constant time and memory. Read the aggregates with
+     * {@link TestSubscriber#getValueStatistics()} or assert on them with {@link TestSubscriber#assertValueSum(double, double)},
+     * {@link TestSubscriber#assertMeanValue(double, double)} and {@link TestSubscriber#assertValuesWithin(double, double)}</p>
+     * @param toNumber Gives the numeric view of a value, values it gives null for are not aggregated
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> aggregateValues(final Func1<? super T, ? extends Number> toNumber){
+        if(toNumber == null){
+            throw new IllegalArgumentException("The numeric view of values can not be null");
+        }
+        valueToNumber = toNumber;
+        return this;
+    }
+
+    /**
+     * <p>Counts the numeric view of every onNext value into a histogram of equally wide buckets as it is recorded</p>
+     * <p>Values below the range are counted in the first bucket and values above it in the last, so memory stays at one counter per bucket.
+     * Requires {@link #aggregateValues(Func1)}. Read the histogram with {@link TestSubscriber#getHistogram()} or assert that values are spread
+     * evenly with {@link TestSubscriber#assertUniformHistogram(double)}</p>
+     * @param low The lowest value of the first bucket
+     * @param high The highest value of the last bucket
+     * @param buckets How many buckets to divide the range into
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> histogram(final double low, final double high, final int buckets){
+        if(buckets < 1){
+            throw new IllegalArgumentException("The histogram needs at least 1 bucket");
+        }
+        if(!(high > low)){
+            throw new IllegalArgumentException("The histogram's high must be above its low");
+        }
+        histogramLow = low;
+        histogramHigh = high;
+        histogramBuckets = buckets;
+        return this;
+    }
+
+    /**
+     * <p>Estimates how many distinct onNext values have been recorded, by their hash codes, in a fixed 64KB</p>
+     * <p>Every value is counted, including values that are not kept. The estimate is typically within 1% of the true count.
+     * Read it with {@link TestSubscriber#getDistinctEstimate()} or assert on it with {@link TestSubscriber#assertDistinctValues(long, double)}</p>
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> estimateDistinct(){
+        estimateDistinct = true;
+        return this;
+    }
+
+    /**
+     * <p>Detects onNext values that are recorded more than once, use {@link TestSubscriber#assertNoDuplicateValues()} to assert that there were none</p>
+     * <p>Each value is checked against a bloom filter as it is recorded, which costs about 10 bits per expected distinct value and tells
+     * almost every new value apart from one seen before. Only the few values the filter can not tell apart are held, and those are
+     * confirmed exactly against the kept events when asserting, so every event must be kept</p>
+     * <p>Values must be recorded by one producer at a time. Two producers recording equal values at the same moment can each find the
+     * other's value missing from the filter, and that duplicate is then not detected</p>
+     * @param expectedDistinct How many distinct values are expected, more than this makes the filter less selective but never wrong
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> detectDuplicates(final long expectedDistinct){
+        if(expectedDistinct < 1){
+            throw new IllegalArgumentException("At least 1 distinct value must be expected");
+        }
+        this.expectedDistinct = expectedDistinct;
+        return this;
+    }
+
+    /**
+     * <p>Counts onNext events per 100ms slice of time as they are recorded, holding the most recent minute of slices</p>
+     * @see #trackRate(long, TimeUnit, int)
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> trackRate(){
+        return trackRate(100, TimeUnit.MILLISECONDS, 600);
+    }
+
+    /**
+     * <p>Counts onNext events per slice of time as they are recorded, and the longest time between consecutive events</p>
+     * <p>Every event is counted, including events that are not kept, and only the most recent slices are held, so memory stays at two
+     * counters per slice. Slices are measured from the first event, in virtual time when combined with {@link #useVirtualTime(TestScheduler)}.
+     * This enables {@link TestSubscriber#awaitRate(double, long, TimeUnit)}, {@link TestSubscriber#assertSustainedThroughput(double, long, TimeUnit)}
+     * and {@link TestSubscriber#assertNoStallLongerThan(long, TimeUnit)}</p>
+     * @param slice How long each slice is, rates are measured over whole slices
+     * @param timeUnit The unit of the slice
+     * @param slices How many of the most recent slices to hold, the longest window a rate can be measured over
+     * @return the TestSubscriberBuilder to continue building with
+     */
+    public TestSubscriberBuilder<T> trackRate(final long slice, final TimeUnit timeUnit, final int slices){
+        if(slice < 1){
+            throw new IllegalArgumentException("The slice must be positive");
+        }
+        if(slices < 1){
+            throw new IllegalArgumentException("At least one slice must be held");
+        }
+        rateSliceNanos = timeUnit.toNanos(slice);
+        rateSlices = slices;
+        return this;
+    }
+
+    /**
+     * @return A new TestSubscriber with the configured behaviour
+     */
+    public TestSubscriber<T> build(){
+        if(indexEvents && (maxRetained != EventLog.UNLIMITED || maxAgeNanos != EventLog.UNLIMITED)){
+            throw new IllegalStateException("indexEvents can not be combined with a retention limit");
+        }
+
+        if(recordTiming && sampleInterval != 1){
+            throw new IllegalStateException("recordTiming can not be combined with countOnly or sampleEvery");
+        }
+
+        if(histogramBuckets > 0 && valueToNumber == null){
+            throw new IllegalStateException("histogram needs aggregateValues");
+        }
+
+        if(expectedDistinct > 0 && (sampleInterval != 1 || maxRetained != EventLog.UNLIMITED || maxAgeNanos != EventLog.UNLIMITED)){
+            throw new IllegalStateException("detectDuplicates can not be combined with countOnly, sampleEvery or a retention limit");
+        }
+
+        // Requesting in batches starts with a batch unless an initial request was given
+        final long effectiveInitialRequest = batchSize > 0 && initialRequest == UNBOUNDED ? batchSize : initialRequest;
+
+        return new TestSubscriber<>(this, effectiveInitialRequest);
+    }
+}
@@ -0,0 +1,269 @@
+package com.rxc;
+
+import rx.Notification;
+import rx.Subscriber;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <p>Records the events of many subscribers to the same {@link rx.Observable}, such as the subscribers of {@link rx.Observable#publish()} or
+ * {@link rx.Observable#share()}, while keeping each event only once</p>
+ * <p>Every subscriber handed out by the group writes to one shared log of events. A subscriber only keeps where in the shared log its events
+ * start and how many it has received, so a thousand subscribers that see the same events cost little more than one. A subscriber whose events
+ * stop matching the shared log keeps its own events from that point on, so nothing is lost when subscribers disagree</p>
+ * <p>Use {@link #subscriber(int)} to make any {@link TestSubscriber} assertion against the events of a single subscriber, and the assertions of
+ * the group to compare subscribers with each other</p>
+ * @param <T> The type of values that will be emitted by the {@link rx.Observable}
+ */
+public class TestSubscriberGroup<T> {
+    private static final long NOT_STARTED = -1;
+    private static final long NOT_DIVERGED = -1;
+
+    private final EventLog<T> shared = new EventLog<>(null, EventLog.UNLIMITED, EventLog.UNLIMITED, false);
+
+    private final List<Member> members = new CopyOnWriteArrayList<>();
+
+    /**
+     * <p>Creates a subscriber that joins the shared events where they currently are, as a subscriber of a hot {@link rx.Observable} does</p>
+     * <p>The subscriber starts at the first shared event, from the number of shared events when it subscribed onwards, that is equal to the
+     * first event it receives. Events it missed while subscribing are then not mistaken for a difference</p>
+     * @return A subscriber backed by the group
+     */
+    public Subscriber<T> newSubscriber(){
+        return add(false);
+    }
+
+    /**
+     * Creates a subscriber that expects to receive the shared events from the very first one, as a subscriber of a cold {@link rx.Observable},
+     * or of {@link rx.Observable#replay()} or {@link rx.Observable#cache()}, does
+     * @return A subscriber backed by the group
+     */
+    public Subscriber<T> newSubscriberFromStart(){
+        return add(true);
+    }
+
+    private synchronized Subscriber<T> add(final boolean fromStart){
+        final Member member = new Member(members.size(), fromStart);
+        members.add(member);
+        return member;
+    }
+
+    /**
+     * @return How many subscribers the group has handed out
+     */
+    public int size(){
+        return members.size();
+    }
+
+    /**
+     * @param k The number of the subscriber, in the order they were handed out starting from 0
+     * @return The position in the shared events that the subscriber's first event is at
+     */
+    public long startOffset(final int k){
+        final Member member = members.get(k);
+        return member.start == NOT_STARTED ? member.subscribedAt : member.start;
+    }
+
+    /**
+     * <p>The events of a single subscriber, as a {@link TestSubscriber} that every assertion can be made against</p>
+     * <p>This is a snapshot of the events received so far, it does not copy them</p>
+     * @param k The number of the subscriber, in the order they were handed out starting from 0
+     * @return A TestSubscriber holding the events of the subscriber
+     */
+    public TestSubscriber<T> subscriber(final int k){
+        return TestSubscriber.replay(members.get(k).snapshot());
+    }
+
+    /**
+     * <p>Asserts that every subscriber received the same events as the first subscriber</p>
+     * <p><b>Fails:</b> When any subscriber received different events, or more or fewer events. Both chains are shown with the first difference highlighted</p>
+     */
+    public void assertAllSawSameSequence(){
+        if(members.isEmpty()){
+            return;
+        }
+
+        final Snapshot first = members.get(0).snapshot();
+        for(int k = 1; k < members.size(); k++){
+            final Snapshot snapshot = members.get(k).snapshot();
+            // Subscribers that start at the same shared event read the same events until either of them diverged, only the rest is walked
+            final long from = snapshot.start == first.start ? Math.min(snapshot.sharedLength, first.sharedLength) : 0;
+            final long divergence = BaselineComparison.firstDivergence(snapshot, snapshot.size, first, from);
+            TestSubscriber.describing(snapshot).failIfDiverged(first, "subscriber 0", "subscriber 0", divergence);
+        }
+    }
+
+    /**
+     * <p>Asserts that every subscriber received an unbroken run of the shared events, subscribers may still have started or stopped at different points</p>
+     * <p><b>Fails:</b> When any subscriber received an event that differs from the shared event at the same position, which is highlighted</p>
+     */
+    public void assertNoDivergence(){
+        for(final Member member : members){
+            final long divergedAt = member.divergedAt;
+            if(divergedAt != NOT_DIVERGED){
+                TestSubscriber.describing(member.snapshot()).fail("Every subscriber to receive a run of the shared events",
+                                                                  "Subscriber " + member.number + " diverged from the shared events at its event " + divergedAt,
+                                                                  divergedAt);
+            }
+        }
+    }
+
+    /**
+     * <p>Asserts that a subscriber's first event is at the given position in the shared events</p>
+     * <p><b>Fails:</b> When the subscriber started elsewhere, or has not received any events</p>
+     * @param k The number of the subscriber, in the order they were handed out starting from 0
+     * @param offset The position in the shared events
+     */
+    public void assertStartedAt(final int k, final long offset){
+        final Member member = members.get(k);
+        final String expected = "Subscriber " + k + " to start at shared event " + offset;
+        if(member.start == NOT_STARTED){
+            TestSubscriber.describing(member.snapshot()).fail(expected, "The subscriber has not received any events", EventIndex.NO_EVENT);
+        } else if(member.start != offset){
+            TestSubscriber.describing(member.snapshot()).fail(expected, "The subscriber started at shared event " + member.start, 0);
+        }
+    }
+
+    /**
+     * Finds the shared event a hot subscriber starts at, only events from when it subscribed onwards are candidates
+     */
+    private long align(final long from, final Notification<T> notification){
+        final long size = shared.size();
+        for(long i = from; i < size; i++){
+            if(BaselineComparison.same(shared.get(i), notification)){
+                return i;
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * A subscriber handed out by the group, it only keeps its position in the shared events unless it diverges from them
+     */
+    private final class Member extends Subscriber<T> {
+        private final int number;
+        private final boolean fromStart;
+
+        private volatile long subscribedAt;
+
+        private volatile long start;
+        private volatile long length = 0;
+        private volatile long divergedAt = NOT_DIVERGED;
+        private volatile EventLog<T> own = null;
+
+        Member(final int number, final boolean fromStart){
+            this.number = number;
+            this.fromStart = fromStart;
+            subscribedAt = fromStart ? 0 : shared.size();
+            start = fromStart ? 0 : NOT_STARTED;
+        }
+
+        @Override
+        public void onStart() {
+            if(!fromStart){
+                subscribedAt = shared.size();
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            record(Notification.<T>createOnCompleted());
+        }
+
+        @Override
+        public void onError(final Throwable e) {
+            record(Notification.<T>createOnError(e));
+        }
+
+        @Override
+        public void onNext(final T t) {
+            record(Notification.createOnNext(t));
+        }
+
+        private void record(final Notification<T> notification){
+            if(own != null){
+                own.append(notification);
+                length++;
+                return;
+            }
+
+            if(start == NOT_STARTED){
+                start = align(subscribedAt, notification);
+            }
+
+            final long position = start + length;
+            if(position < shared.size() && BaselineComparison.same(shared.get(position), notification)){
+                length++;
+                return;
+            }
+
+            synchronized (shared){
+                // Only appended to while holding the lock, so the size can not change until it is released
+                final long size = shared.size();
+                if(position == size){
+                    shared.append(notification);
+                    length++;
+                    return;
+                } else if(position < size && BaselineComparison.same(shared.get(position), notification)){
+                    length++;
+                    return;
+                }
+            }
+
+            final EventLog<T> events = new EventLog<>(null, EventLog.UNLIMITED, EventLog.UNLIMITED, false);
+            events.append(notification);
+            divergedAt = length;
+            own = events;
+            length++;
+        }
+
+        /**
+         * @return The events received so far, from the shared events up to any divergence and from its own events after that
+         */
+        Snapshot snapshot(){
+            final long size = length;
+            final long diverged = divergedAt;
+            return new Snapshot(start, size, diverged == NOT_DIVERGED ? size : diverged, own);
+        }
+    }
+
+    /**
+     * The events a subscriber had received when the snapshot was taken, nothing is copied
+     */
+    private final class Snapshot implements RecordedEvents<T> {
+        private final long start;
+        private final long size;
+        private final long sharedLength;
+        private final EventLog<T> own;
+
+        /**
+         * @param start The position in the shared events of the subscriber's first event
+         * @param size How many events the subscriber received
+         * @param sharedLength How many of them are read from the shared events, the rest are its own events
+         * @param own The events the subscriber received after diverging, or null when it never diverged
+         */
+        Snapshot(final long start, final long size, final long sharedLength, final EventLog<T> own){
+            this.start = start;
+            this.size = size;
+            this.sharedLength = sharedLength;
+            this.own = own;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public long firstRetained() {
+            return 0;
+        }
+
+        @Override
+        public Notification<T> get(final long index) {
+            return index < sharedLength ? shared.get(start + index) : own.get(index - sharedLength);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.rxc;
+
+import rx.Notification;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * <p>Reads a trace file written by a {@link TestSubscriber} built with {@link TestSubscriberBuilder#traceTo(Path, ValueCodec)}</p>
+ * <p>The file is memory mapped rather than read into the heap, so traces far larger than the heap can be read. Opening the file walks the
+ * record lengths once and keeps the offset of every {@value #BLOCK_SIZE}th record, reading an event then takes at most that many hops, and
+ * reading events in order takes a single hop each. A record that was only partly written, for example by a JVM that crashed, ends the trace</p>
+ * <p>Use {@link TestSubscriber#replay(TraceReader)} to make assertions against the events of a trace</p>
+ * @param <T> The type of values held by the OnNext notifications
+ */
+public final class TraceReader<T> implements RecordedEvents<T>, Closeable {
+    static final int BLOCK_SIZE = 1024;
+
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final ValueCodec<T> codec;
+    private final MappedByteBuffer[] segments;
+
+    private long[] blockOffsets = new long[16];
+    private final long size;
+
+    private long cursorIndex = -1;
+    private long cursorOffset;
+    private int cursorLength;
+
+    private TraceReader(final FileChannel channel, final ValueCodec<T> codec) throws IOException {
+        this.channel = channel;
+        this.codec = codec;
+
+        final long fileSize = channel.size();
+        segments = new MappedByteBuffer[(int) ((fileSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+        for(int i = 0; i < segments.length; i++){
+            final long start = i * SEGMENT_SIZE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, fileSize - start));
+        }
+
+        if(fileSize < TraceWriter.HEADER_SIZE || readInt(0) != TraceWriter.MAGIC){
+            throw new IOException("Not a trace file");
+        } else if(readInt(4) != TraceWriter.VERSION){
+            throw new IOException("Unsupported trace file version " + readInt(4));
+        }
+
+        long count = 0;
+        long offset = TraceWriter.HEADER_SIZE;
+        while (offset + 4 <= fileSize){
+            final int length = readInt(offset);
+            if(length < TraceWriter.RECORD_HEADER_SIZE || offset + 4 + length > fileSize){
+                break;
+            }
+
+            if(count % BLOCK_SIZE == 0){
+                final int block = (int) (count / BLOCK_SIZE);
+                if(block == blockOffsets.length){
+                    blockOffsets = Arrays.copyOf(blockOffsets, block * 2);
+                }
+                blockOffsets[block] = offset;
+            }
+            count++;
+            offset += 4 + length;
+        }
+        size = count;
+    }
+
+    /**
+     * Opens a trace file
+     * @param path The trace file
+     * @param codec The codec the OnNext values were written with
+     * @return A reader for the trace, which should be closed once it is no longer needed
+     * @throws IOException When the file can not be read or is not a trace file
+     */
+    public static <T> TraceReader<T> open(final Path path, final ValueCodec<T> codec) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new TraceReader<>(channel, codec);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return How many events the trace holds
+     */
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public long firstRetained() {
+        return 0;
+    }
+
+    /**
+     * @param index The index of the event, must be less than {@link #size()}
+     * @return The event at the index
+     */
+    @Override
+    public synchronized Notification<T> get(final long index) {
+        final ByteBuffer record = record(index);
+
+        final Notification.Kind kind = Notification.Kind.values()[record.get(4)];
+        final int valueLength = record.getInt(4 + TraceWriter.RECORD_HEADER_SIZE - 4);
+        ByteBuffer value = null;
+        if(valueLength != TraceWriter.NULL_VALUE){
+            record.position(4 + TraceWriter.RECORD_HEADER_SIZE);
+            record.limit(4 + TraceWriter.RECORD_HEADER_SIZE + valueLength);
+            value = record.slice();
+        }
+
+        switch (kind){
+            case OnNext:
+                return Notification.createOnNext(value == null ? null : codec.decode(value));
+            case OnError:
+                return Notification.createOnError(value == null ? null : (Throwable) ValueCodecs.deserialize(value));
+            default:
+                return Notification.createOnCompleted();
+        }
+    }
+
+    /**
+     * @param index The index of the event, must be less than {@link #size()}
+     * @return The {@link System#nanoTime()} the event was recorded at
+     */
+    public synchronized long time(final long index){
+        return record(index).getLong(4 + 1 + 8);
+    }
+
+    /**
+     * @param index The index of the event, must be less than {@link #size()}
+     * @return The id of the thread that recorded the event
+     */
+    public synchronized long threadId(final long index){
+        return record(index).getLong(4 + 1 + 8 + 8);
+    }
+
+    /**
+     * @return The whole record of an event, including its length
+     */
+    private ByteBuffer record(final long index){
+        if(index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("No event at " + index + ", the trace holds " + size + " events");
+        }
+
+        if(index != cursorIndex){
+            long i;
+            long offset;
+            if(cursorIndex >= 0 && index > cursorIndex && index - cursorIndex < BLOCK_SIZE){
+                i = cursorIndex;
+                offset = cursorOffset;
+            } else {
+                i = index / BLOCK_SIZE * BLOCK_SIZE;
+                offset = blockOffsets[(int) (index / BLOCK_SIZE)];
+            }
+
+            for(; i < index; i++){
+                offset += 4 + readInt(offset);
+            }
+            cursorIndex = index;
+            cursorOffset = offset;
+            cursorLength = readInt(offset);
+        }
+
+        return bytes(cursorOffset, 4 + cursorLength);
+    }
+
+    private int readInt(final long offset){
+        return bytes(offset, 4).getInt(0);
+    }
+
+    /**
+     * @return The bytes of the file from the offset, these are a view of the mapping unless they cross from one mapped segment into the next
+     */
+    private ByteBuffer bytes(final long offset, final int length){
+        final int segment = (int) (offset / SEGMENT_SIZE);
+        final int position = (int) (offset % SEGMENT_SIZE);
+        if(position + length <= segments[segment].capacity()){
+            final ByteBuffer view = segments[segment].duplicate();
+            view.position(position);
+            view.limit(position + length);
+            return view.slice();
+        }
+
+        final ByteBuffer copy = ByteBuffer.allocate(length);
+        try {
+            while (copy.hasRemaining()){
+                if(channel.read(copy, offset + copy.position()) < 0){
+                    throw new EOFException();
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the trace file", e);
+        }
+        copy.flip();
+        return copy;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,193 @@
+package com.rxc;
+
+import rx.Notification;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Writes events to a binary trace file that can be read back with {@link TraceReader}</p>
+ * <p>The file starts with a header of {@link #MAGIC} and {@link #VERSION}, followed by one record per event in sequence order. Each record is
+ * its length, then the kind, sequence, {@link System#nanoTime()} and thread id of the event, then the length and bytes of its value.
+ * OnNext values are written by a {@link ValueCodec} and OnError throwables with Java serialization</p>
+ * <p>Records are gathered in a direct buffer and written through a {@link FileChannel} when it fills up or a terminal event is written.
+ * Events written out of order by concurrent producers are held back until every event before them has been written</p>
+ * <p>Writing is serialised, concurrent producers take turns encoding and buffering their events, and the producer of a terminal event
+ * also waits for the file to be forced to disk. Tracing therefore suits the producers of a test rather than a throughput benchmark</p>
+ * @param <T> The type of values held by the OnNext notifications
+ */
+final class TraceWriter<T> implements Closeable {
+    static final int MAGIC = 0x52584354;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    /** The kind, sequence, time, thread id and value length that follow the length of every record */
+    static final int RECORD_HEADER_SIZE = 1 + 8 + 8 + 8 + 4;
+    static final int NULL_VALUE = -1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ValueCodec<T> codec;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private final Map<Long, ByteBuffer> pending = new HashMap<>();
+    private long nextSequence = 0;
+
+    TraceWriter(final Path path, final ValueCodec<T> codec) throws IOException {
+        this.codec = codec;
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        buffer.putInt(MAGIC).putInt(VERSION);
+    }
+
+    /**
+     * @param sequence The position of the event, every sequence from 0 must be written exactly once
+     * @param notification The event
+     * @param time The {@link System#nanoTime()} the event was recorded at
+     * @param threadId The id of the thread that recorded the event, events written after {@link #close()} are ignored
+     * @throws IOException When the file could not be written, or the value could not be encoded. A value that could not be encoded is
+     * written as null, so that the events after it are still written
+     */
+    synchronized void write(final long sequence, final Notification<T> notification, final long time, final long threadId) throws IOException {
+        if(!channel.isOpen()){
+            return;
+        }
+
+        RuntimeException encodeFailure = null;
+        byte[] value;
+        try {
+            value = encode(notification);
+        } catch (RuntimeException e) {
+            encodeFailure = e;
+            value = null;
+        }
+        append(sequence, notification, time, threadId, value);
+
+        if(encodeFailure != null){
+            throw new EncodeFailure("The value of event " + sequence + " could not be encoded", encodeFailure);
+        }
+    }
+
+    /**
+     * Thrown when a value could not be encoded, the event was still written and later events can be written as before
+     */
+    static final class EncodeFailure extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        EncodeFailure(final String message, final Throwable cause){
+            super(message, cause);
+        }
+    }
+
+    private void append(final long sequence, final Notification<T> notification, final long time, final long threadId, final byte[] value) throws IOException {
+        final int length = RECORD_HEADER_SIZE + (value == null ? 0 : value.length);
+
+        if(sequence != nextSequence){
+            final ByteBuffer record = ByteBuffer.allocate(4 + length);
+            putRecord(record, length, notification.getKind(), sequence, time, threadId, value);
+            record.flip();
+            pending.put(sequence, record);
+            return;
+        }
+
+        if(buffer.remaining() < 4 + length){
+            drain();
+        }
+        if(buffer.remaining() < 4 + length){
+            // Larger than the whole buffer, it is written on its own
+            final ByteBuffer record = ByteBuffer.allocate(4 + length);
+            putRecord(record, length, notification.getKind(), sequence, time, threadId, value);
+            record.flip();
+            writeFully(record);
+        } else {
+            putRecord(buffer, length, notification.getKind(), sequence, time, threadId, value);
+        }
+        nextSequence++;
+
+        while (!pending.isEmpty()){
+            final ByteBuffer record = pending.remove(nextSequence);
+            if(record == null){
+                break;
+            }
+            if(buffer.remaining() < record.remaining()){
+                drain();
+            }
+            if(buffer.remaining() < record.remaining()){
+                writeFully(record);
+            } else {
+                buffer.put(record);
+            }
+            nextSequence++;
+        }
+
+        if(notification.getKind() != Notification.Kind.OnNext){
+            flush();
+        }
+    }
+
+    private byte[] encode(final Notification<T> notification){
+        if(notification.isOnNext()){
+            return notification.getValue() == null ? null : codec.encode(notification.getValue());
+        } else if(notification.isOnError() && notification.getThrowable() != null){
+            try {
+                return ValueCodecs.serialize(notification.getThrowable());
+            } catch (IllegalArgumentException e) {
+                if(!(e.getCause() instanceof NotSerializableException)){
+                    throw e;
+                }
+                // Keeps what can be kept of a throwable that refuses to be serialized
+                return ValueCodecs.serialize(new RuntimeException(notification.getThrowable().toString()));
+            }
+        }
+
+        return null;
+    }
+
+    private static void putRecord(final ByteBuffer buffer, final int length, final Notification.Kind kind, final long sequence,
+                                  final long time, final long threadId, final byte[] value){
+        buffer.putInt(length)
+              .put((byte) kind.ordinal())
+              .putLong(sequence)
+              .putLong(time)
+              .putLong(threadId)
+              .putInt(value == null ? NULL_VALUE : value.length);
+        if(value != null){
+            buffer.put(value);
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(final ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()){
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * Writes every buffered record to the file
+     */
+    synchronized void flush() throws IOException {
+        drain();
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(channel.isOpen()){
+            flush();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.rxc;
+
+import rx.functions.Func1;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Aggregates the onNext values recorded by a {@link TestSubscriber} as they are recorded, in constant time and memory per value</p>
+ * <p>Each aggregate is optional. The numeric view of the values gives a count, sum, min and max, and optionally a histogram with a fixed
+ * number of buckets. The values themselves give an estimate of how many are distinct, and candidates for duplicates. Values are identified
+ * by their sequence, the position they were recorded at</p>
+ * <p>Any number of threads may add values at once without taking a lock. The count and sum are kept in stripes picked by thread, so that
+ * threads rarely update the same counter, and the smallest and largest values are replaced by compare and set. A value that the numeric
+ * view or the value's hash code throws on is not aggregated, the exception is kept in {@link #failure()} instead</p>
+ * @param <T> The type of values held by the OnNext notifications
+ */
+final class ValueAggregator<T> {
+    static final long NO_EVENT = -1;
+
+    /** Stands in for a null value, which the set of duplicate candidates can not hold */
+    static final Object NULL_VALUE = new Object();
+
+    /** A power of two, so that a stripe is picked by masking the thread id */
+    private static final int STRIPES = 16;
+    /** Each stripe takes a cache line of longs, the count, the bits of the sum and padding, so that stripes are not falsely shared */
+    private static final int STRIDE = 8;
+    private static final int COUNT = 0;
+    private static final int SUM = 1;
+
+    private final Func1<? super T, ? extends Number> toNumber;
+
+    private final AtomicLongArray stripes = new AtomicLongArray(STRIPES * STRIDE);
+    private final AtomicReference<Extreme> min = new AtomicReference<>();
+    private final AtomicReference<Extreme> max = new AtomicReference<>();
+
+    private final CallbackFailure failure = new CallbackFailure();
+
+    private final double histogramLow;
+    private final double histogramWidth;
+    private final AtomicLongArray histogram;
+
+    private final HyperLogLog distinct;
+
+    private final BloomFilter seen;
+    private final Set<Object> duplicateCandidates;
+
+    /**
+     * @param toNumber Gives the numeric view of a value, or null to not aggregate numbers
+     * @param histogramLow The lowest value of the first histogram bucket
+     * @param histogramHigh The highest value of the last histogram bucket
+     * @param histogramBuckets How many histogram buckets, or 0 for no histogram
+     * @param estimateDistinct Whether to estimate how many values are distinct
+     * @param expectedDistinct How many distinct values the duplicate filter is sized for, or 0 to not detect duplicates
+     */
+    ValueAggregator(final Func1<? super T, ? extends Number> toNumber,
+                    final double histogramLow, final double histogramHigh, final int histogramBuckets,
+                    final boolean estimateDistinct, final long expectedDistinct){
+        this.toNumber = toNumber;
+        this.histogramLow = histogramLow;
+        histogramWidth = histogramBuckets == 0 ? 0 : (histogramHigh - histogramLow) / histogramBuckets;
+        histogram = histogramBuckets == 0 ? null : new AtomicLongArray(histogramBuckets);
+        distinct = estimateDistinct ? new HyperLogLog() : null;
+        seen = expectedDistinct == 0 ? null : new BloomFilter(expectedDistinct);
+        duplicateCandidates = expectedDistinct == 0 ? null : Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+    }
+
+    /**
+     * Aggregates an onNext value
+     * @param sequence The position the value was recorded at
+     * @param value The onNext value
+     */
+    void add(final long sequence, final T value){
+        try {
+            if(toNumber != null){
+                final Number number = toNumber.call(value);
+                if(number != null){
+                    addNumber(sequence, number.doubleValue());
+                }
+            }
+
+            if(distinct != null || seen != null){
+                final long hash = HyperLogLog.mix(value == null ? 0 : value.hashCode());
+                if(distinct != null){
+                    distinct.add(hash);
+                }
+                if(seen != null && !seen.add(hash)){
+                    // Most values are known to be new by the filter alone, the rest are only confirmed against the kept events when asserting
+                    duplicateCandidates.add(value == null ? NULL_VALUE : value);
+                }
+            }
+        } catch (RuntimeException e) {
+            failure.record(sequence, e);
+        }
+    }
+
+    private void addNumber(final long sequence, final double number){
+        if(histogram != null){
+            final int bucket = (int) Math.floor((number - histogramLow) / histogramWidth);
+            histogram.incrementAndGet(Math.max(0, Math.min(histogram.length() - 1, bucket)));
+        }
+
+        final int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1)) * STRIDE;
+        stripes.incrementAndGet(stripe + COUNT);
+        long bits;
+        do {
+            bits = stripes.get(stripe + SUM);
+        } while (!stripes.compareAndSet(stripe + SUM, bits, Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + number)));
+
+        offer(min, number, sequence, true);
+        offer(max, number, sequence, false);
+    }
+
+    /**
+     * Replaces the smallest or largest value with the number, unless it already holds a value that is further out, or as far out and earlier
+     */
+    private static void offer(final AtomicReference<Extreme> extreme, final double number, final long sequence, final boolean smallest){
+        Extreme replacement = null;
+        while (true){
+            final Extreme current = extreme.get();
+            if(current != null && !current.isBeatenBy(number, sequence, smallest)){
+                return;
+            }
+            if(replacement == null){
+                replacement = new Extreme(number, sequence);
+            }
+            if(extreme.compareAndSet(current, replacement)){
+                return;
+            }
+        }
+    }
+
+    boolean aggregatesNumbers(){
+        return toNumber != null;
+    }
+
+    boolean hasHistogram(){
+        return histogram != null;
+    }
+
+    boolean estimatesDistinct(){
+        return distinct != null;
+    }
+
+    boolean detectsDuplicates(){
+        return seen != null;
+    }
+
+    /**
+     * @return The statistics of the values added so far, a value that is still being added may be counted in some of them but not yet in others
+     */
+    ValueStatistics statistics(){
+        long count = 0;
+        double sum = 0;
+        for(int stripe = 0; stripe < STRIPES * STRIDE; stripe += STRIDE){
+            count += stripes.get(stripe + COUNT);
+            sum += Double.longBitsToDouble(stripes.get(stripe + SUM));
+        }
+
+        final Extreme smallest = min.get();
+        final Extreme largest = max.get();
+        return new ValueStatistics(count, sum, smallest == null ? Double.NaN : smallest.value, largest == null ? Double.NaN : largest.value);
+    }
+
+    /**
+     * @return The sequence of the first of the smallest values, or {@link #NO_EVENT} when there were none
+     */
+    long minSequence(){
+        final Extreme smallest = min.get();
+        return smallest == null ? NO_EVENT : smallest.sequence;
+    }
+
+    /**
+     * @return The sequence of the first of the largest values, or {@link #NO_EVENT} when there were none
+     */
+    long maxSequence(){
+        final Extreme largest = max.get();
+        return largest == null ? NO_EVENT : largest.sequence;
+    }
+
+    /**
+     * @return How many values fell into each bucket, values outside of the histogram's range are counted in the nearest bucket
+     */
+    long[] histogram(){
+        final long[] counts = new long[histogram.length()];
+        for(int i = 0; i < counts.length; i++){
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+
+    double histogramLow(){
+        return histogramLow;
+    }
+
+    double histogramWidth(){
+        return histogramWidth;
+    }
+
+    long distinctEstimate(){
+        return distinct.estimate();
+    }
+
+    /**
+     * @return Every value that may have been recorded more than once, {@link #NULL_VALUE} standing in for null. This holds every
+     * duplicate as well as the filter's false positives, which stay few as long as the number of distinct values is within what it was sized for
+     */
+    Set<Object> duplicateCandidates(){
+        return duplicateCandidates;
+    }
+
+    /**
+     * @return The exceptions thrown by the numeric view or the hash codes of values
+     */
+    CallbackFailure failure(){
+        return failure;
+    }
+
+    /**
+     * The smallest or largest value so far and where it was recorded, replaced as a whole so that both always agree
+     */
+    private static final class Extreme {
+        private final double value;
+        private final long sequence;
+
+        Extreme(final double value, final long sequence){
+            this.value = value;
+            this.sequence = sequence;
+        }
+
+        /**
+         * @param smallest Whether the smallest value is kept, otherwise the largest
+         * @return Whether the number should replace this value
+         */
+        boolean isBeatenBy(final double number, final long sequence, final boolean smallest){
+            if(number == value){
+                return sequence < this.sequence;
+            }
+            return smallest ? number < value : number > value;
+        }
+    }
+}
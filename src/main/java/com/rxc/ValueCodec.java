@@ -0,0 +1,21 @@
+package com.rxc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts OnNext values to and from the bytes stored in a trace file, see {@link ValueCodecs} for codecs of common types
+ * @param <T> The type of values to convert
+ */
+public interface ValueCodec<T> {
+    /**
+     * @param value The value to encode, never null
+     * @return The bytes of the value
+     */
+    byte[] encode(T value);
+
+    /**
+     * @param bytes The bytes of a value from its position up to its limit
+     * @return The decoded value
+     */
+    T decode(ByteBuffer bytes);
+}
@@ -0,0 +1,135 @@
+package com.rxc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * {@link ValueCodec}s for common types of values
+ */
+public class ValueCodecs {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final ValueCodec<String> STRINGS = new ValueCodec<String>() {
+        @Override
+        public byte[] encode(final String value) {
+            return value.getBytes(UTF_8);
+        }
+
+        @Override
+        public String decode(final ByteBuffer bytes) {
+            return UTF_8.decode(bytes).toString();
+        }
+    };
+
+    private static final ValueCodec<Long> LONGS = new ValueCodec<Long>() {
+        @Override
+        public byte[] encode(final Long value) {
+            return ByteBuffer.allocate(8).putLong(value).array();
+        }
+
+        @Override
+        public Long decode(final ByteBuffer bytes) {
+            return bytes.getLong();
+        }
+    };
+
+    private static final ValueCodec<Integer> INTEGERS = new ValueCodec<Integer>() {
+        @Override
+        public byte[] encode(final Integer value) {
+            return ByteBuffer.allocate(4).putInt(value).array();
+        }
+
+        @Override
+        public Integer decode(final ByteBuffer bytes) {
+            return bytes.getInt();
+        }
+    };
+
+    private static final ValueCodec<Double> DOUBLES = new ValueCodec<Double>() {
+        @Override
+        public byte[] encode(final Double value) {
+            return ByteBuffer.allocate(8).putDouble(value).array();
+        }
+
+        @Override
+        public Double decode(final ByteBuffer bytes) {
+            return bytes.getDouble();
+        }
+    };
+
+    /**
+     * @return A codec that stores strings as UTF-8
+     */
+    public static ValueCodec<String> strings(){
+        return STRINGS;
+    }
+
+    /**
+     * @return A codec that stores longs in 8 bytes
+     */
+    public static ValueCodec<Long> longs(){
+        return LONGS;
+    }
+
+    /**
+     * @return A codec that stores integers in 4 bytes
+     */
+    public static ValueCodec<Integer> integers(){
+        return INTEGERS;
+    }
+
+    /**
+     * @return A codec that stores doubles in 8 bytes
+     */
+    public static ValueCodec<Double> doubles(){
+        return DOUBLES;
+    }
+
+    /**
+     * @return A codec that stores any {@link Serializable} value with Java serialization
+     */
+    public static <T extends Serializable> ValueCodec<T> serializable(){
+        return new ValueCodec<T>() {
+            @Override
+            public byte[] encode(final T value) {
+                return serialize(value);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T decode(final ByteBuffer bytes) {
+                return (T) deserialize(bytes);
+            }
+        };
+    }
+
+    static byte[] serialize(final Object value){
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(value);
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not serialize " + value, e);
+        }
+    }
+
+    static Object deserialize(final ByteBuffer buffer){
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        try {
+            final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Could not deserialize a traced value", e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.rxc;
+
+import java.util.Locale;
+
+/**
+ * <p>A snapshot of the numeric view of the onNext values recorded by a {@link TestSubscriber}, as aggregated by
+ * {@link TestSubscriberBuilder#aggregateValues(rx.functions.Func1)}</p>
+ * <p>Every value is aggregated as it is recorded, including values that are not kept</p>
+ */
+public final class ValueStatistics {
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+
+    ValueStatistics(final long count, final double sum, final double min, final double max){
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * @return How many values were aggregated, values whose numeric view was null are not counted
+     */
+    public long getCount(){
+        return count;
+    }
+
+    /**
+     * @return The sum of the values, 0 when there were none
+     */
+    public double getSum(){
+        return sum;
+    }
+
+    /**
+     * @return The mean of the values, NaN when there were none
+     */
+    public double getMean(){
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * @return The smallest value, NaN when there were none
+     */
+    public double getMin(){
+        return min;
+    }
+
+    /**
+     * @return The largest value, NaN when there were none
+     */
+    public double getMax(){
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "count=%d, sum=%s, mean=%s, min=%s, max=%s", count, sum, getMean(), min, max);
+    }
+}
@@ -0,0 +1,60 @@
+package com.rxc;
+
+import rx.schedulers.TestScheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Moves a {@link TestScheduler} forward in steps until a condition holds, so that waiting on events takes virtual time instead of wall clock time</p>
+ * <p>Every action the scheduler runs happens on the thread advancing it, so the condition can be checked after each step without any waiting</p>
+ */
+final class VirtualClock {
+    /**
+     * Something that is waited for by advancing virtual time
+     */
+    interface Condition {
+        boolean isSatisfied();
+    }
+
+    private final TestScheduler scheduler;
+    private final long stepNanos;
+
+    /**
+     * @param scheduler The scheduler to advance
+     * @param stepNanos How far to advance the scheduler at a time, in nanoseconds
+     */
+    VirtualClock(final TestScheduler scheduler, final long stepNanos){
+        this.scheduler = scheduler;
+        this.stepNanos = stepNanos;
+    }
+
+    /**
+     * @return The scheduler that is advanced
+     */
+    TestScheduler getScheduler(){
+        return scheduler;
+    }
+
+    /**
+     * Runs every action that is due and then advances the scheduler a step at a time until the condition holds
+     * @param condition The condition to wait for
+     * @param timeoutNanos How much virtual time may pass before giving up, in nanoseconds
+     * @return false if the timeout passed before the condition held
+     */
+    boolean advanceUntil(final Condition condition, final long timeoutNanos){
+        scheduler.triggerActions();
+
+        long advanced = 0;
+        while (!condition.isSatisfied()){
+            if(advanced >= timeoutNanos){
+                return false;
+            }
+
+            final long step = Math.min(stepNanos, timeoutNanos - advanced);
+            scheduler.advanceTimeBy(step, TimeUnit.NANOSECONDS);
+            advanced += step;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,15 @@
+package com.rxc.matchers;
+
+import org.hamcrest.SelfDescribing;
+
+/**
+ * A matcher for primitive double values, it is checked without boxing the value
+ */
+public abstract class DoubleMatcher implements SelfDescribing {
+
+    /**
+     * @param value The value to check
+     * @return true if the value matches
+     */
+    public abstract boolean matches(double value);
+}
@@ -0,0 +1,15 @@
+package com.rxc.matchers;
+
+import org.hamcrest.Matcher;
+import rx.Notification;
+
+/**
+ * <p>A matcher that can only match Notifications of a single kind</p>
+ * <p>The kind is exposed so that events of other kinds can be skipped without calling the matcher at all</p>
+ */
+public interface KindedMatcher extends Matcher<Notification> {
+    /**
+     * @return The only kind of Notification the matcher can match
+     */
+    Notification.Kind getKind();
+}
@@ -4,9 +4,6 @@ package com.rxc.matchers;
 import org.hamcrest.Matcher;
 import rx.Notification;
 
-import static org.hamcrest.core.Is.is;
-import static org.hamcrest.core.Is.isA;
-
 public class NotificationMatchers {
 
     /**
@@ -22,7 +19,7 @@ public class NotificationMatchers {
      * @param value The value compared to the value of the OnNext notification
      */
     public static Matcher<Notification> isValue(final Object value){
-        return isValueThat(is(value));
+        return new OnNextValueMatcher(value);
     }
 
     /**
@@ -38,7 +35,7 @@ public class NotificationMatchers {
      * @param errorClass The Class used to match the onError Notification's Throwable
      */
     public static Matcher<Notification> isError(final Class<? extends Throwable> errorClass){
-        return isErrorThat(isA(errorClass));
+        return new OnErrorClassMatcher(errorClass);
     }
 
     /**
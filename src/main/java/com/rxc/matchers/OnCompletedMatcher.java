@@ -8,7 +8,22 @@ import rx.Notification;
 /**
  * A matcher that matches onCompleted Notifications
  */
-public class OnCompletedMatcher extends TypeSafeMatcher<Notification>{
+public class OnCompletedMatcher extends TypeSafeMatcher<Notification> implements KindedMatcher {
+    /**
+     * Constructs the matcher
+     */
+    public OnCompletedMatcher() {
+        super(Notification.class);
+    }
+
+    /**
+     * @return {@link Notification.Kind#OnCompleted}, the only kind of Notification the matcher can match
+     */
+    @Override
+    public Notification.Kind getKind() {
+        return Notification.Kind.OnCompleted;
+    }
+
     @Override
     protected boolean matchesSafely(final Notification item) {
         return item.getKind() == Notification.Kind.OnCompleted;
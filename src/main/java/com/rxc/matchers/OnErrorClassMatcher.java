@@ -0,0 +1,28 @@
+package com.rxc.matchers;
+
+import static org.hamcrest.core.Is.isA;
+
+/**
+ * A matcher that matches onError Notifications with a Throwable that is an instance of the given Class
+ * <p>The expected Class is exposed so that indexed lookups can answer this matcher without scanning every event</p>
+ */
+public class OnErrorClassMatcher extends OnErrorMatcher {
+
+    private final Class<? extends Throwable> errorClass;
+
+    /**
+     * Constructs the matcher
+     * @param errorClass The Class used to match the onError Notification's Throwable
+     */
+    public OnErrorClassMatcher(final Class<? extends Throwable> errorClass) {
+        super(isA(errorClass));
+        this.errorClass = errorClass;
+    }
+
+    /**
+     * @return The Class used to match the onError Notification's Throwable
+     */
+    public Class<? extends Throwable> getErrorClass() {
+        return errorClass;
+    }
+}
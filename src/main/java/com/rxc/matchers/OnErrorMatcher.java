@@ -9,7 +9,7 @@ import rx.Notification;
 /**
  * A matcher that matches onError Notifications with an error matching the given matcher
  */
-public class OnErrorMatcher extends TypeSafeMatcher<Notification> {
+public class OnErrorMatcher extends TypeSafeMatcher<Notification> implements KindedMatcher {
 
     private final Matcher<? extends Throwable> errorMatcher;
 
@@ -18,9 +18,18 @@ public class OnErrorMatcher extends TypeSafeMatcher<Notification> {
      * @param errorMatcher The matcher used to match the error of the onError Notification
      */
     public OnErrorMatcher(final Matcher<? extends Throwable> errorMatcher) {
+        super(Notification.class);
         this.errorMatcher = errorMatcher;
     }
 
+    /**
+     * @return {@link Notification.Kind#OnError}, the only kind of Notification the matcher can match
+     */
+    @Override
+    public Notification.Kind getKind() {
+        return Notification.Kind.OnError;
+    }
+
     @Override
     protected boolean matchesSafely(final Notification item) {
         return item.getKind() == Notification.Kind.OnError && errorMatcher.matches(item.getThrowable());
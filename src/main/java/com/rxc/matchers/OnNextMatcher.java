@@ -9,7 +9,7 @@ import rx.Notification;
 /**
  * A matcher that matches OnNext notifications with a value matching the given matcher
  */
-public class OnNextMatcher extends TypeSafeMatcher<Notification> {
+public class OnNextMatcher extends TypeSafeMatcher<Notification> implements KindedMatcher {
 
     private final Matcher valueMatcher;
 
@@ -18,9 +18,18 @@ public class OnNextMatcher extends TypeSafeMatcher<Notification> {
      * @param valueMatcher The matcher used to match the value of the onNext Notification
      */
     public OnNextMatcher(final Matcher valueMatcher) {
+        super(Notification.class);
         this.valueMatcher = valueMatcher;
     }
 
+    /**
+     * @return {@link Notification.Kind#OnNext}, the only kind of Notification the matcher can match
+     */
+    @Override
+    public Notification.Kind getKind() {
+        return Notification.Kind.OnNext;
+    }
+
 
     @Override
     public void describeTo(final Description description) {
@@ -0,0 +1,28 @@
+package com.rxc.matchers;
+
+import static org.hamcrest.core.Is.is;
+
+/**
+ * A matcher that matches OnNext notifications with a value equal to the given value
+ * <p>The expected value is exposed so that indexed lookups can answer this matcher without scanning every event</p>
+ */
+public class OnNextValueMatcher extends OnNextMatcher {
+
+    private final Object value;
+
+    /**
+     * Constructs the matcher
+     * @param value The value compared to the value of the onNext Notification
+     */
+    public OnNextValueMatcher(final Object value) {
+        super(is(value));
+        this.value = value;
+    }
+
+    /**
+     * @return The value compared to the value of the onNext Notification
+     */
+    public Object getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,23 @@
+package com.rxc.matchers;
+
+import org.hamcrest.SelfDescribing;
+
+/**
+ * A matcher for the order of two consecutive primitive values, it is checked without boxing either value
+ */
+public abstract class OrderMatcher implements SelfDescribing {
+
+    /**
+     * @param previous The earlier of the two values
+     * @param next The later of the two values
+     * @return true if the values are in order
+     */
+    public abstract boolean matches(long previous, long next);
+
+    /**
+     * @param previous The earlier of the two values
+     * @param next The later of the two values
+     * @return true if the values are in order
+     */
+    public abstract boolean matches(double previous, double next);
+}
@@ -0,0 +1,162 @@
+package com.rxc.matchers;
+
+
+import org.hamcrest.Description;
+
+/**
+ * Factory methods for the {@link LongMatcher}s and {@link DoubleMatcher}s used by {@link com.rxc.LongTestSubscriber} and
+ * {@link com.rxc.DoubleTestSubscriber}
+ */
+public class PrimitiveMatchers {
+
+    /**
+     * A matcher that matches long values equal to the given value
+     * @param expected The value compared to the long value
+     */
+    public static LongMatcher isLong(final long expected){
+        return new LongMatcher() {
+            @Override
+            public boolean matches(final long value) {
+                return value == expected;
+            }
+
+            @Override
+            public void describeTo(final Description description) {
+                description.appendText("value ").appendText(String.valueOf(expected));
+            }
+        };
+    }
+
+    /**
+     * A matcher that matches long values between min and max, inclusive
+     * @param min The smallest matching value
+     * @param max The largest matching value
+     */
+    public static LongMatcher isLongBetween(final long min, final long max){
+        return new LongMatcher() {
+            @Override
+            public boolean matches(final long value) {
+                return value >= min && value <= max;
+            }
+
+            @Override
+            public void describeTo(final Description description) {
+                description.appendText("value between ").appendText(String.valueOf(min))
+                           .appendText(" and ").appendText(String.valueOf(max));
+            }
+        };
+    }
+
+    /**
+     * A matcher that matches double values within a tolerance of the given value
+     * @param expected The value compared to the double value
+     * @param tolerance How far the double value may be from the expected value
+     */
+    public static DoubleMatcher isDouble(final double expected, final double tolerance){
+        return new DoubleMatcher() {
+            @Override
+            public boolean matches(final double value) {
+                return Math.abs(value - expected) <= tolerance;
+            }
+
+            @Override
+            public void describeTo(final Description description) {
+                description.appendText("value ").appendText(String.valueOf(expected))
+                           .appendText(" within ").appendText(String.valueOf(tolerance));
+            }
+        };
+    }
+
+    /**
+     * A matcher that matches double values between min and max, inclusive
+     * @param min The smallest matching value
+     * @param max The largest matching value
+     */
+    public static DoubleMatcher isDoubleBetween(final double min, final double max){
+        return new DoubleMatcher() {
+            @Override
+            public boolean matches(final double value) {
+                return value >= min && value <= max;
+            }
+
+            @Override
+            public void describeTo(final Description description) {
+                description.appendText("value between ").appendText(String.valueOf(min))
+                           .appendText(" and ").appendText(String.valueOf(max));
+            }
+        };
+    }
+
+    /**
+     * A matcher that matches consecutive values where the later value is not smaller than the earlier value
+     */
+    public static OrderMatcher isIncreasing(){
+        return new ComparingOrderMatcher("values that never decrease") {
+            @Override
+            boolean inOrder(final int comparison) {
+                return comparison <= 0;
+            }
+        };
+    }
+
+    /**
+     * A matcher that matches consecutive values where the later value is larger than the earlier value
+     */
+    public static OrderMatcher isStrictlyIncreasing(){
+        return new ComparingOrderMatcher("strictly increasing values") {
+            @Override
+            boolean inOrder(final int comparison) {
+                return comparison < 0;
+            }
+        };
+    }
+
+    /**
+     * A matcher that matches consecutive values where the later value is not larger than the earlier value
+     */
+    public static OrderMatcher isDecreasing(){
+        return new ComparingOrderMatcher("values that never increase") {
+            @Override
+            boolean inOrder(final int comparison) {
+                return comparison >= 0;
+            }
+        };
+    }
+
+    /**
+     * A matcher that matches consecutive values where the later value is smaller than the earlier value
+     */
+    public static OrderMatcher isStrictlyDecreasing(){
+        return new ComparingOrderMatcher("strictly decreasing values") {
+            @Override
+            boolean inOrder(final int comparison) {
+                return comparison > 0;
+            }
+        };
+    }
+
+    private abstract static class ComparingOrderMatcher extends OrderMatcher {
+        private final String description;
+
+        ComparingOrderMatcher(final String description) {
+            this.description = description;
+        }
+
+        abstract boolean inOrder(int comparison);
+
+        @Override
+        public boolean matches(final long previous, final long next) {
+            return inOrder(Long.compare(previous, next));
+        }
+
+        @Override
+        public boolean matches(final double previous, final double next) {
+            return inOrder(Double.compare(previous, next));
+        }
+
+        @Override
+        public void describeTo(final Description description) {
+            description.appendText(this.description);
+        }
+    }
+}
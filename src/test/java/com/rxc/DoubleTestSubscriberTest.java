@@ -0,0 +1,38 @@
+package com.rxc;
+
+import org.junit.Test;
+import rx.Observable;
+
+import static com.rxc.MoreAssertions.assertThrows;
+import static com.rxc.matchers.PrimitiveMatchers.*;
+import static com.rxc.matchers.ThrowableMatchers.hasMessageThat;
+import static org.hamcrest.CoreMatchers.containsString;
+
+public class DoubleTestSubscriberTest {
+
+    @Test
+    public void hasValue() throws Exception {
+        final DoubleTestSubscriber<Double> testSubscriber = new DoubleTestSubscriber<>();
+
+        Observable.just(0.5, 1.5, 2.5).subscribe(testSubscriber);
+
+        testSubscriber.assertHasValue(isDouble(1.5, 0.001));
+        testSubscriber.assertDoesNotHaveValue(isDouble(2.0, 0.001));
+        testSubscriber.assertEveryValue(isDoubleBetween(0, 3));
+        testSubscriber.assertValuesInOrder(isStrictlyIncreasing());
+    }
+
+    @Test
+    public void everyValue_fails() throws Exception {
+        final DoubleTestSubscriber<Float> testSubscriber = new DoubleTestSubscriber<>();
+
+        Observable.just(0.5f, 4.5f).subscribe(testSubscriber);
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertEveryValue(isDoubleBetween(0, 3));
+            }
+        }, hasMessageThat(containsString("    -------> onNext(<4.5>)")));
+    }
+}
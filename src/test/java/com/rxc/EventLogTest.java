@@ -0,0 +1,127 @@
+package com.rxc;
+
+import org.junit.Test;
+import rx.Notification;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EventLogTest {
+
+    @Test
+    public void append_returnsIndex() throws Exception {
+        final EventLog<String> log = new EventLog<>();
+
+        assertEquals(0, log.append(Notification.createOnNext("Glork")));
+        assertEquals(1, log.append(Notification.<String>createOnCompleted()));
+        assertEquals(2, log.size());
+    }
+
+    @Test
+    public void get_acrossChunks() throws Exception {
+        final EventLog<Integer> log = new EventLog<>();
+
+        for (int i = 0; i < 100000; i++) {
+            log.append(Notification.createOnNext(i));
+        }
+
+        assertEquals(100000, log.size());
+        assertEquals(0, (int) log.get(0).getValue());
+        assertEquals(1023, (int) log.get(1023).getValue());
+        assertEquals(1024, (int) log.get(1024).getValue());
+        assertEquals(99999, (int) log.get(99999).getValue());
+    }
+
+    @Test
+    public void append_concurrentProducers() throws Exception {
+        final int producers = 8;
+        final int perProducer = 50000;
+        final AtomicLong publishedCount = new AtomicLong();
+        final EventLog<Integer> log = new EventLog<>(new EventLog.Listener<Integer>() {
+            @Override
+            public void onPublished(final long index, final Notification<Integer> notification) {
+                publishedCount.incrementAndGet();
+            }
+        });
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (final InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        log.append(Notification.createOnNext(producer * perProducer + i));
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(producers * perProducer, log.size());
+        assertEquals(producers * perProducer, publishedCount.get());
+
+        final boolean[] seen = new boolean[producers * perProducer];
+        final int[] lastPerProducer = new int[producers];
+        for (int i = 0; i < log.size(); i++) {
+            final int value = log.get(i).getValue();
+            assertTrue("Value recorded twice", !seen[value]);
+            seen[value] = true;
+
+            // Each producer's own events must keep the order they were appended in
+            final int producer = value / perProducer;
+            assertTrue("Producer order was not kept", value >= lastPerProducer[producer]);
+            lastPerProducer[producer] = value;
+        }
+    }
+
+    @Test
+    public void retainLast_dropsOldestEvents() throws Exception {
+        final EventLog<Integer> log = new EventLog<>(null, 1500, EventLog.UNLIMITED);
+
+        for (int i = 0; i < 10000; i++) {
+            log.append(Notification.createOnNext(i));
+        }
+        log.append(Notification.<Integer>createOnCompleted());
+
+        assertEquals(10001, log.size());
+        assertEquals(10001 - 1500, log.firstRetained());
+        assertEquals(10001 - 1500, log.dropped(Notification.Kind.OnNext));
+        assertEquals(0, log.dropped(Notification.Kind.OnCompleted));
+        assertNull(log.get(0));
+        assertNull(log.get(log.firstRetained() - 1));
+        assertEquals(10001 - 1500, (int) log.get(log.firstRetained()).getValue());
+        assertEquals(9999, (int) log.get(9999).getValue());
+    }
+
+    @Test
+    public void retainFor_dropsExpiredEvents() throws Exception {
+        final EventLog<Integer> log = new EventLog<>(null, EventLog.UNLIMITED, TimeUnit.MILLISECONDS.toNanos(100));
+
+        for (int i = 0; i < 10; i++) {
+            log.append(Notification.createOnNext(i));
+        }
+        Thread.sleep(200);
+        log.append(Notification.createOnNext(10));
+
+        assertEquals(10, log.firstRetained());
+        assertEquals(10, log.dropped(Notification.Kind.OnNext));
+        assertEquals(10, (int) log.get(10).getValue());
+    }
+}
@@ -0,0 +1,112 @@
+package com.rxc;
+
+import org.junit.Test;
+import rx.Observable;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.rxc.MoreAssertions.assertThrows;
+import static com.rxc.matchers.PrimitiveMatchers.*;
+import static com.rxc.matchers.ThrowableMatchers.hasMessageThat;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+
+public class LongTestSubscriberTest {
+
+    @Test
+    public void hasValue() throws Exception {
+        final LongTestSubscriber<Integer> testSubscriber = new LongTestSubscriber<>();
+
+        Observable.just(1, 2, 3).subscribe(testSubscriber);
+
+        testSubscriber.assertHasValue(isLong(2));
+        testSubscriber.assertDoesNotHaveValue(isLong(4));
+        testSubscriber.assertEveryValue(isLongBetween(1, 3));
+        testSubscriber.assertValuesInOrder(isStrictlyIncreasing());
+    }
+
+    @Test
+    public void hasValue_doesntMatch() throws Exception {
+        final LongTestSubscriber<Long> testSubscriber = new LongTestSubscriber<>();
+
+        Observable.just(1L, 2L).subscribe(testSubscriber);
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertHasValue(isLong(5));
+            }
+        }, hasMessageThat(containsString("There was no matching value in the event chain")));
+    }
+
+    @Test
+    public void valuesInOrder_fails() throws Exception {
+        final LongTestSubscriber<Integer> testSubscriber = new LongTestSubscriber<>();
+
+        Observable.just(1, 3, 2).subscribe(testSubscriber);
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertValuesInOrder(isIncreasing());
+            }
+        }, hasMessageThat(containsString("    -------> onNext(<2L>)")));
+    }
+
+    @Test
+    public void awaitValue() throws Exception {
+        final LongTestSubscriber<Integer> testSubscriber = new LongTestSubscriber<>();
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10000; i++) {
+                    testSubscriber.onNext(i);
+                }
+                testSubscriber.onCompleted();
+            }
+        }).start();
+
+        testSubscriber.awaitValue(isLongBetween(9000, 9999), 1000, 5000, TimeUnit.MILLISECONDS);
+        testSubscriber.awaitTerminalEvent();
+    }
+
+    @Test
+    public void awaitValue_timesOut() throws Exception {
+        final LongTestSubscriber<Integer> testSubscriber = new LongTestSubscriber<>();
+
+        Observable.just(1).subscribe(testSubscriber);
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.awaitValue(isLong(2), 1, 100, TimeUnit.MILLISECONDS);
+            }
+        }, hasMessageThat(containsString("Timed out waiting for value")));
+    }
+
+    @Test
+    public void onErrorNull_isRecorded() throws Exception {
+        final LongTestSubscriber<Integer> testSubscriber = new LongTestSubscriber<>();
+
+        testSubscriber.onError(null);
+        testSubscriber.onNext(1);
+
+        testSubscriber.awaitTerminalEvent(1, TimeUnit.SECONDS);
+        testSubscriber.assertHasValue(isLong(1));
+        assertEquals(2, testSubscriber.getEventCount());
+    }
+
+    @Test
+    public void onNextNull_fails() throws Exception {
+        final LongTestSubscriber<Integer> testSubscriber = new LongTestSubscriber<>();
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.onNext(null);
+            }
+        }, hasMessageThat(containsString("LongTestSubscriber can not record a null value")));
+        assertEquals(0, testSubscriber.getEventCount());
+    }
+}
@@ -0,0 +1,24 @@
+package com.rxc;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RateTrackerTest {
+
+    @Test
+    public void record_eventBeforeOriginCountsInFirstSlice() throws Exception {
+        final RateTracker rates = new RateTracker(1000, 10);
+
+        // A second producer read the time first but set the origin last
+        rates.record(0, 5000, true);
+        rates.record(1, 2000, true);
+        rates.record(2, 6500, true);
+
+        assertEquals(2, rates.count(0));
+        assertEquals(1, rates.count(1));
+        assertEquals(3, rates.count(0, 2));
+        assertEquals(6500, rates.lastEventAt());
+        assertEquals(1500, rates.longestGap());
+    }
+}
@@ -0,0 +1,51 @@
+package com.rxc;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SequenceBarrierTest {
+
+    @Test
+    public void awaitBeyond_returnsOncePublishedPassesSequence() throws Exception {
+        final SequenceBarrier barrier = new SequenceBarrier();
+
+        final Thread publisher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (long size = 1; size <= 10; size++) {
+                    barrier.publish(size);
+                }
+            }
+        });
+        publisher.start();
+
+        assertTrue(barrier.awaitBeyond(9, System.nanoTime() + TimeUnit.SECONDS.toNanos(5)));
+        publisher.join();
+        assertEquals(10, barrier.published());
+    }
+
+    @Test
+    public void awaitBeyond_timesOut() throws Exception {
+        final SequenceBarrier barrier = new SequenceBarrier();
+        barrier.publish(3);
+
+        final long start = System.nanoTime();
+        assertFalse(barrier.awaitBeyond(3, start + TimeUnit.MILLISECONDS.toNanos(100)));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void publish_neverMovesBack() throws Exception {
+        final SequenceBarrier barrier = new SequenceBarrier();
+
+        barrier.publish(5);
+        barrier.publish(4);
+
+        assertEquals(5, barrier.published());
+    }
+}
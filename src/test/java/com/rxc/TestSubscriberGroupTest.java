@@ -0,0 +1,124 @@
+package com.rxc;
+
+import org.junit.Test;
+import rx.Observable;
+import rx.Subscriber;
+
+import static com.rxc.MoreAssertions.assertThrows;
+import static com.rxc.matchers.NotificationMatchers.*;
+import static com.rxc.matchers.ThrowableMatchers.hasMessageThat;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertEquals;
+
+public class TestSubscriberGroupTest {
+
+    @Test
+    public void assertAllSawSameSequence() throws Exception {
+        final TestSubscriberGroup<Integer> group = new TestSubscriberGroup<>();
+        final Observable<Integer> observable = Observable.range(0, 100);
+        for (int i = 0; i < 1000; i++) {
+            observable.subscribe(group.newSubscriberFromStart());
+        }
+
+        assertEquals(1000, group.size());
+        group.assertAllSawSameSequence();
+        group.assertNoDivergence();
+        group.assertStartedAt(999, 0);
+        group.subscriber(500).beginAssertionChain()
+                .ignoreNextEvents(99)
+                .assertNextEvent(isValue(99))
+                .assertNextEvent(isCompletion())
+                .assertNoRemainingEvents();
+    }
+
+    @Test
+    public void newSubscriber_joinsWhereTheEventsAre() throws Exception {
+        final TestSubscriberGroup<String> group = new TestSubscriberGroup<>();
+        final Subscriber<String> early = group.newSubscriber();
+        early.onStart();
+        early.onNext("one");
+        early.onNext("two");
+
+        final Subscriber<String> late = group.newSubscriber();
+        late.onStart();
+        early.onNext("three");
+        late.onNext("three");
+        early.onCompleted();
+        late.onCompleted();
+
+        group.assertNoDivergence();
+        group.assertStartedAt(0, 0);
+        group.assertStartedAt(1, 2);
+        assertEquals(2, group.startOffset(1));
+        group.subscriber(1).beginAssertionChain()
+                .assertNextEvent(isValue("three"))
+                .assertNextEvent(isCompletion())
+                .assertNoRemainingEvents();
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                group.assertStartedAt(1, 0);
+            }
+        }, hasMessageThat(containsString("The subscriber started at shared event 2")));
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                group.assertAllSawSameSequence();
+            }
+        }, hasMessageThat(containsString("The events diverged from subscriber 0 at event 0")));
+    }
+
+    @Test
+    public void divergingSubscriber_keepsItsOwnEvents() throws Exception {
+        final TestSubscriberGroup<Integer> group = new TestSubscriberGroup<>();
+        Observable.just(1, 2, 3).subscribe(group.newSubscriberFromStart());
+        Observable.just(1, 5, 3).subscribe(group.newSubscriberFromStart());
+
+        group.subscriber(1).beginAssertionChain()
+                .assertNextEvent(isValue(1))
+                .assertNextEvent(isValue(5))
+                .assertNextEvent(isValue(3))
+                .assertNextEvent(isCompletion());
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                group.assertNoDivergence();
+            }
+        }, hasMessageThat(allOf(
+                containsString("Subscriber 1 diverged from the shared events at its event 1"),
+                containsString("-------> onNext(<5>)"))));
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                group.assertAllSawSameSequence();
+            }
+        }, hasMessageThat(allOf(
+                containsString("The events diverged from subscriber 0 at event 1"),
+                containsString("subscriber 0: "),
+                containsString("-------> onNext(<2>)"))));
+    }
+
+    @Test
+    public void assertAllSawSameSequence_fewerEvents() throws Exception {
+        final TestSubscriberGroup<Integer> group = new TestSubscriberGroup<>();
+        final Subscriber<Integer> first = group.newSubscriberFromStart();
+        final Subscriber<Integer> second = group.newSubscriberFromStart();
+        for (int i = 0; i < 3; i++) {
+            first.onNext(i);
+        }
+        second.onNext(0);
+        second.onNext(1);
+
+        group.assertNoDivergence();
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                group.assertAllSawSameSequence();
+            }
+        }, hasMessageThat(allOf(
+                containsString("The events ended after 2 events but subscriber 0 has 3"),
+                containsString("-------> onNext(<2>)"))));
+    }
+}
@@ -1,16 +1,35 @@
 package com.rxc;
 
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
 import org.junit.Test;
+import rx.Notification;
 import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.functions.Func1;
+import rx.functions.Func2;
 import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.rxc.MoreAssertions.assertTakesAtLeast;
 import static com.rxc.MoreAssertions.assertThrows;
 import static com.rxc.matchers.NotificationMatchers.*;
+import static com.rxc.matchers.ThrowableMatchers.hasCauseThat;
 import static com.rxc.matchers.ThrowableMatchers.hasMessageThat;
 import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 public class TestSubscriberTest {
 
@@ -61,6 +80,169 @@ public class TestSubscriberTest {
     }
 
 
+    @Test
+    public void indexed_hasEvent() throws Exception {
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().indexEvents().build();
+
+        new ObservableBuilder<String>()
+                .emit("Glork")
+                .emit("flork")
+                .error(new IOException("There is no spoon"))
+                .subscribe(testSubscriber);
+
+        testSubscriber.assertHasEvent(isValue("flork"));
+        testSubscriber.assertHasEvent(isValueThat(startsWith("fl")));
+        testSubscriber.assertHasEvent(isError(Exception.class));
+        testSubscriber.assertHasEvent(not(isValue("Glork")));
+    }
+
+    @Test
+    public void indexed_hasEvent_doesntMatch() throws Exception {
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().indexEvents().build();
+
+        Observable.just("hello").subscribe(testSubscriber);
+
+        assertThrows(new ThrowingRunnable(){
+            @Override
+            public void run() {
+                testSubscriber.assertHasEvent(isValue("glork"));
+            }
+        }, hasMessageThat(containsString("There was no matching event in the event")));
+    }
+
+    @Test
+    public void indexed_doesNotHaveEvent_matches() throws Exception {
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().indexEvents().build();
+
+        new ObservableBuilder<String>()
+                .emit("Glork")
+                .emit("flork")
+                .error(new IOException("There is no spoon"))
+                .subscribe(testSubscriber);
+
+        testSubscriber.assertDoesNotHaveEvent(isError(IllegalStateException.class));
+        assertThrows(new ThrowingRunnable(){
+            @Override
+            public void run() {
+                testSubscriber.assertDoesNotHaveEvent(isError(IOException.class));
+            }
+        }, hasMessageThat(containsString("    -------> onError(<java.io.IOException: There is no spoon>)")));
+    }
+
+    @Test
+    public void retainLast_assertsAgainstRetainedEvents() throws Exception {
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().retainLast(2).build();
+
+        new ObservableBuilder<String>()
+                .emit("Glork")
+                .emit("flork")
+                .emit("fork")
+                .complete()
+                .subscribe(testSubscriber);
+
+        testSubscriber.assertHasEvent(isValue("fork"));
+        testSubscriber.assertDoesNotHaveEvent(isValue("Glork"));
+        testSubscriber.beginAssertionChain()
+                      .assertNextEvent(isValue("fork"))
+                      .assertNextEvent(isCompletion())
+                      .assertNoRemainingEvents();
+    }
+
+    @Test
+    public void retainLast_eventChainStatesDroppedEvents() throws Exception {
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().retainLast(2).build();
+
+        new ObservableBuilder<String>()
+                .emit("Glork")
+                .emit("flork")
+                .emit("fork")
+                .complete()
+                .subscribe(testSubscriber);
+
+        assertThrows(new ThrowingRunnable(){
+            @Override
+            public void run() {
+                testSubscriber.assertHasEvent(isValue("Glork"));
+            }
+        }, hasMessageThat(containsString("... 2 earlier events were dropped by the retention limit (2 onNext, 0 onError, 0 onCompleted) ...")));
+    }
+
+    @Test
+    public void retainLast_failureKeepsEventsDroppedAfterItWasThrown() throws Exception {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().retainLast(5).build();
+        for (int i = 0; i < 10; i++) {
+            testSubscriber.onNext(i);
+        }
+
+        AssertionError failure = null;
+        try {
+            testSubscriber.assertDoesNotHaveEvent(isValue(8));
+        } catch (AssertionError e) {
+            failure = e;
+        }
+        for (int i = 10; i < 100; i++) {
+            testSubscriber.onNext(i);
+        }
+
+        assertThat(failure, hasMessageThat(allOf(
+                containsString("             onNext(<7>)\n    -------> onNext(<8>)\n             onNext(<9>)"),
+                not(containsString("onNext(<10>)")))));
+    }
+
+    @Test
+    public void countOnly_countsWithoutKeepingEvents() throws Exception {
+        final Matcher<Notification> isEven = isValueThat(anyOf(is(0), is(2), is(4)));
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>()
+                .countOnly()
+                .countMatching(isEven)
+                .build();
+
+        for (int i = 0; i < 5; i++) {
+            testSubscriber.onNext(i);
+        }
+        testSubscriber.onCompleted();
+
+        assertEquals(5, testSubscriber.getEventCount(Notification.Kind.OnNext));
+        assertEquals(1, testSubscriber.getEventCount(Notification.Kind.OnCompleted));
+        assertEquals(3, testSubscriber.getMatchCount(isEven));
+        testSubscriber.awaitEvent(isEven,3,100,TimeUnit.MILLISECONDS);
+        testSubscriber.beginAssertionChain().assertNoRemainingEvents();
+    }
+
+    @Test
+    public void countOnly_awaitEvent_timesOutWithCount() throws Exception {
+        final Matcher<Notification> isGlork = isValue("Glork");
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>()
+                .countOnly()
+                .countMatching(isGlork)
+                .build();
+
+        testSubscriber.onNext("Glork");
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.awaitEvent(isGlork,2,100,TimeUnit.MILLISECONDS);
+            }
+        },hasMessageThat(containsString("1 of 2 matching events were recorded")));
+    }
+
+    @Test
+    public void sampleEvery_keepsSample() throws Exception {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().sampleEvery(3).build();
+
+        for (int i = 0; i < 7; i++) {
+            testSubscriber.onNext(i);
+        }
+
+        assertEquals(7, testSubscriber.getEventCount(Notification.Kind.OnNext));
+        testSubscriber.beginAssertionChain()
+                      .assertNextEvent(isValue(0))
+                      .assertNextEvent(isValue(3))
+                      .assertNextEvent(isValue(6))
+                      .assertNoRemainingEvents();
+    }
+
     @Test
     public void awaitEvent_timesOut(){
         final TestSubscriber<String> testSubscriber = new TestSubscriber<>();
@@ -95,6 +277,38 @@ public class TestSubscriberTest {
         },2500);
     }
 
+    @Test
+    public void awaitEvent_concurrentAwaiters() throws Throwable{
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<>();
+        final int awaiters = 200;
+        final CountDownLatch released = new CountDownLatch(awaiters);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        for (int i = 0; i < awaiters; i++) {
+            final int value = i;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        testSubscriber.awaitEvent(isValue(value),1,5000,TimeUnit.MILLISECONDS);
+                    } catch (final Throwable t) {
+                        failure.set(t);
+                    }
+                    released.countDown();
+                }
+            }).start();
+        }
+
+        for (int i = 0; i < awaiters; i++) {
+            testSubscriber.onNext(i);
+        }
+
+        released.await();
+        if(failure.get() != null){
+            throw failure.get();
+        }
+    }
+
     @Test
     public void assertionChain_assertNextEvent(){
         final TestSubscriber<String> testSubscriber = new TestSubscriber<>();
@@ -115,6 +329,37 @@ public class TestSubscriberTest {
                       .assertNextEvent(isErrorThat(hasMessageThat(containsString("no spoon"))));
     }
 
+    @Test
+    public void assertionChain_snapshotWhileRecording() throws Exception{
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<>();
+        final AtomicBoolean running = new AtomicBoolean(true);
+
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int i = 0;
+                while (running.get()){
+                    testSubscriber.onNext(i++);
+                }
+            }
+        });
+        producer.start();
+
+        try {
+            testSubscriber.awaitEvent(isValue(1000));
+
+            final TestSubscriber<Integer>.AssertionChain chain = testSubscriber.beginAssertionChain();
+            for (int i = 0; i <= 1000; i++) {
+                chain.assertNextEvent(isValue(i));
+            }
+            chain.ignoreNextEvents(Integer.MAX_VALUE)
+                 .assertNoRemainingEvents();
+        } finally {
+            running.set(false);
+            producer.join();
+        }
+    }
+
     @Test
     public void assertionChain_assertNextEvent_failsNotMatching(){
         final TestSubscriber<String> testSubscriber = new TestSubscriber<>();
@@ -335,4 +580,1070 @@ public class TestSubscriberTest {
             }
         },hasMessageThat(containsString("Received more events after an onError event")));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void assertWellBehaved_highlightsFirstEventAfterCompletion(){
+        final TestSubscriber<String> testSubscriber = new TestSubscriber<>();
+
+        new UnsafeObservableBuilder<String>()
+                .emit("Glork")
+                .complete()
+                .emit("spoon")
+                .complete()
+                .build()
+                .unsafeSubscribe(testSubscriber);
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertWellBehaved();
+            }
+        },hasMessageThat(allOf(containsString("Received more events after an onCompleted event (2 times), the Observable terminated at event 1"),
+                               containsString("    -------> onNext(\"spoon\")"))));
+    }
+
+    @Test
+    public void assertWellBehaved_countOnly_checksEventsThatWereNotKept(){
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().countOnly().build();
+
+        testSubscriber.onNext("Glork");
+        testSubscriber.onError(new IOException());
+        testSubscriber.onNext("spoon");
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertWellBehaved();
+            }
+        },hasMessageThat(containsString("Received more events after an onError event (1 time)")));
+    }
+
+    @Test
+    public void assertWellBehaved_retainLast_checksDroppedEvents(){
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().retainLast(1).build();
+
+        testSubscriber.onCompleted();
+        testSubscriber.onNext("Glork");
+        testSubscriber.onNext("flork");
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertWellBehaved();
+            }
+        },hasMessageThat(containsString("Received more events after an onCompleted event (2 times)")));
+    }
+
+    @Test
+    public void assertWellBehaved_fails_overlappingEvents() throws Exception {
+        final CountDownLatch delivering = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Matcher<Notification> blocksOnGlork = isValueThat(new BaseMatcher<Object>() {
+            @Override
+            public boolean matches(final Object item) {
+                if("Glork".equals(item)){
+                    delivering.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public void describeTo(final Description description) {
+                description.appendText("blocks on Glork");
+            }
+        });
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().countMatching(blocksOnGlork).build();
+
+        final Thread first = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                testSubscriber.onNext("Glork");
+            }
+        });
+        first.start();
+        delivering.await();
+        testSubscriber.onNext("flork");
+        release.countDown();
+        first.join();
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertWellBehaved();
+            }
+        },hasMessageThat(allOf(containsString("Received an event on one thread while another thread was still delivering an event"),
+                               containsString("    -------> onNext(\"flork\")"))));
+    }
+
+    @Test
+    public void recordTiming_assertFirstEventWithin() throws Exception {
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().recordTiming().build();
+
+        new ObservableBuilder<String>()
+                .sleep(200)
+                .emit("Glork")
+                .complete()
+                .subscribe(testSubscriber);
+
+        testSubscriber.assertFirstEventWithin(1, TimeUnit.MINUTES);
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertFirstEventWithin(100, TimeUnit.MILLISECONDS);
+            }
+        },hasMessageThat(containsString("The first event arrived after")));
+    }
+
+    @Test
+    public void recordTiming_assertInterArrivalPercentile() throws Exception {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().recordTiming().build();
+
+        for (int i = 0; i < 10; i++) {
+            testSubscriber.onNext(i);
+        }
+        Thread.sleep(200);
+        testSubscriber.onNext(10);
+
+        testSubscriber.assertInterArrivalPercentile(50, 150, TimeUnit.MILLISECONDS);
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertInterArrivalPercentile(99, 150, TimeUnit.MILLISECONDS);
+            }
+        },hasMessageThat(containsString("    -------> onNext(<10>) at +")));
+    }
+
+    @Test
+    public void recordTiming_assertEveryEventOnThread() throws Exception {
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().recordTiming().build();
+        final String threadName = Thread.currentThread().getName();
+
+        testSubscriber.onNext("Glork");
+        testSubscriber.onCompleted();
+
+        testSubscriber.assertEveryEventOnThread(is(threadName));
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertEveryEventOnComputationThread();
+            }
+        },hasMessageThat(allOf(containsString("An event was delivered on " + threadName),
+                               containsString("    -------> onNext(\"Glork\") at +"))));
+    }
+
+    @Test
+    public void timingAssertions_requireRecordTiming() throws Exception {
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                new TestSubscriber<String>().assertFirstEventWithin(1, TimeUnit.SECONDS);
+            }
+        },hasMessageThat(containsString("Timing was not recorded")));
+    }
+
+    @Test
+    public void requestInBatches_refillsDemand() throws Exception {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().requestInBatches(2).build();
+
+        Observable.range(1, 5).subscribe(testSubscriber);
+
+        testSubscriber.beginAssertionChain()
+                      .ignoreNextEvents(4)
+                      .assertNextEvent(isValue(5))
+                      .assertNextEvent(isCompletion())
+                      .assertNoRemainingEvents();
+        testSubscriber.assertOutstandingDemand(1);
+        testSubscriber.assertNoOverproduction();
+    }
+
+    @Test
+    public void requestInBatches_builderCanBeReused() throws Exception {
+        final TestSubscriberBuilder<Integer> builder = new TestSubscriberBuilder<Integer>().requestInBatches(2);
+        final TestSubscriber<Integer> first = builder.build();
+        final TestSubscriber<Integer> second = builder.requestInBatches(5).build();
+
+        first.onStart();
+        second.onStart();
+
+        assertEquals(2, first.getOutstandingDemand());
+        assertEquals(5, second.getOutstandingDemand());
+    }
+
+    @Test
+    public void requestMore_deliversRequestedEvents() throws Exception {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().requestInitially(0).build();
+
+        Observable.range(1, 5).subscribe(testSubscriber);
+        testSubscriber.beginAssertionChain().assertNoRemainingEvents();
+
+        testSubscriber.requestMore(3);
+        testSubscriber.beginAssertionChain()
+                      .ignoreNextEvents(2)
+                      .assertNextEvent(isValue(3))
+                      .assertNoRemainingEvents();
+        testSubscriber.assertOutstandingDemand(0);
+    }
+
+    @Test
+    public void assertNoOverproduction_fails() throws Exception {
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().requestInitially(1).build();
+
+        testSubscriber.onNext("Glork");
+        testSubscriber.onNext("flork");
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertNoOverproduction();
+            }
+        },hasMessageThat(allOf(containsString("2 onNext events were received but only 1 were requested"),
+                               containsString("    -------> onNext(\"flork\")"))));
+    }
+
+    @Test
+    public void processEachFor_slowsConsumer() throws Throwable {
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>()
+                .processEachFor(20, TimeUnit.MILLISECONDS)
+                .build();
+
+        // Processing is timed with System.nanoTime, the margin allows for the coarser clock of assertTakesAtLeast
+        assertTakesAtLeast(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                new ObservableBuilder<String>()
+                        .emit("Glork")
+                        .emit("flork")
+                        .emit("fork")
+                        .complete()
+                        .subscribe(testSubscriber);
+            }
+        },50);
+    }
+
+    @Test
+    public void eventChain_showsWindowAroundHighlightedEvent() throws Exception {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<>();
+
+        for (int i = 0; i < 100000; i++) {
+            testSubscriber.onNext(i);
+        }
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertDoesNotHaveEvent(isValue(50000));
+            }
+        },hasMessageThat(allOf(containsString("             ... 49,980 more ...\n             onNext(<49980>)"),
+                               containsString("    -------> onNext(<50000>)"),
+                               containsString("             onNext(<50020>)\n             ... 49,979 more ..."),
+                               not(containsString("onNext(<49979>)")))));
+    }
+
+    @Test
+    public void eventChain_collapsesIdenticalEvents() throws Exception {
+        final TestSubscriber<String> testSubscriber = new TestSubscriber<>();
+
+        for (int i = 0; i < 5; i++) {
+            testSubscriber.onNext("Glork");
+        }
+        testSubscriber.onCompleted();
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertHasEvent(isValue("spoon"));
+            }
+        },hasMessageThat(containsString("             onNext(\"Glork\") ... repeated 4 more times\n             onCompleted()")));
+    }
+
+    @Test
+    public void eventChain_elidesLongValues() throws Exception {
+        final TestSubscriber<String> testSubscriber = new TestSubscriber<>();
+        final StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            value.append('x');
+        }
+
+        testSubscriber.onNext(value.toString());
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertHasEvent(isValue("spoon"));
+            }
+        },hasMessageThat(containsString("... (810 more characters)")));
+    }
+
+    @Test
+    public void awaitEvent_honoursTimeoutInSeconds() throws Exception {
+        final TestSubscriber<String> testSubscriber = new TestSubscriber<>();
+
+        new ObservableBuilder<String>()
+                .sleep(300)
+                .emit("Glork")
+                .build()
+                .subscribeOn(Schedulers.newThread())
+                .subscribe(testSubscriber);
+
+        testSubscriber.awaitEvent(isValue("Glork"), 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void awaitEvent_timesOutAfterTimeout() throws Throwable {
+        final TestSubscriber<String> testSubscriber = new TestSubscriber<>();
+
+        // The bounds only tell a 200ms timeout apart from one in seconds, or one that never ends
+        final long start = System.nanoTime();
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.awaitEvent(isCompletion(), 200, TimeUnit.MILLISECONDS);
+            }
+        },hasMessageThat(containsString("Timed out waiting for event")));
+        final long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(30));
+    }
+
+    @Test
+    public void sampleEvery_awaitEvent_seesEventsThatWereNotKept() throws Exception {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().sampleEvery(2).build();
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 4; i++) {
+                    testSubscriber.onNext(i);
+                }
+            }
+        }).start();
+
+        testSubscriber.awaitEvent(isValue(3), 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void sampleEvery_awaitEvent_neverCountsAnEventTwice() throws Exception {
+        for (int run = 0; run < 200; run++) {
+            final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().sampleEvery(2).build();
+            final AtomicBoolean stop = new AtomicBoolean();
+            final Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (!stop.get()) {
+                        testSubscriber.onNext("a");
+                    }
+                }
+            });
+            producer.start();
+
+            try {
+                testSubscriber.awaitEvent(isValue("a"), 50, 5, TimeUnit.SECONDS);
+                assertTrue(testSubscriber.getEventCount(Notification.Kind.OnNext) >= 50);
+            } finally {
+                stop.set(true);
+                producer.join();
+            }
+        }
+    }
+
+    @Test
+    public void awaitEvent_countsAlreadyRecordedMatches() throws Exception {
+        final TestSubscriber<String> testSubscriber = new TestSubscriber<>();
+
+        testSubscriber.onNext("Glork");
+        testSubscriber.onNext("flork");
+        testSubscriber.onNext("Glork");
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                testSubscriber.onNext("Glork");
+            }
+        }).start();
+
+        testSubscriber.awaitEvent(isValue("Glork"), 3, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void awaitEvent_doesNotReturnBeforeEnoughMatches() throws Exception {
+        final TestSubscriber<String> testSubscriber = new TestSubscriber<>();
+
+        testSubscriber.onNext("Glork");
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.awaitEvent(isValue("Glork"), 2, 100, TimeUnit.MILLISECONDS);
+            }
+        },hasMessageThat(containsString("Timed out waiting for event")));
+    }
+
+    @Test
+    public void useVirtualTime_awaitEventAdvancesScheduler() throws Throwable {
+        final TestScheduler scheduler = new TestScheduler();
+        final TestSubscriber<Long> testSubscriber = new TestSubscriberBuilder<Long>()
+                .useVirtualTime(scheduler, 1, TimeUnit.SECONDS)
+                .build();
+
+        Observable.timer(10, TimeUnit.MINUTES, scheduler).subscribe(testSubscriber);
+
+        final long start = System.nanoTime();
+        testSubscriber.awaitEvent(isCompletion(), 1, 1, TimeUnit.HOURS);
+        // An hour of virtual time passes in far less than a minute of real time
+        assertTrue(System.nanoTime() - start < TimeUnit.MINUTES.toNanos(1));
+        assertEquals(TimeUnit.MINUTES.toMillis(10), scheduler.now());
+    }
+
+    @Test
+    public void useVirtualTime_awaitEventTimesOutInVirtualTime() throws Throwable {
+        final TestScheduler scheduler = new TestScheduler();
+        final TestSubscriber<Long> testSubscriber = new TestSubscriberBuilder<Long>().useVirtualTime(scheduler).build();
+
+        Observable.timer(10, TimeUnit.MINUTES, scheduler).subscribe(testSubscriber);
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.awaitEvent(isCompletion(), 1, 5, TimeUnit.SECONDS);
+            }
+        },hasMessageThat(containsString("Timed out waiting for event")));
+        assertEquals(TimeUnit.SECONDS.toMillis(5), scheduler.now());
+    }
+
+    private static List<Notification<Integer>> baseline(final int count){
+        final List<Notification<Integer>> baseline = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            baseline.add(Notification.createOnNext(i));
+        }
+        baseline.add(Notification.<Integer>createOnCompleted());
+        return baseline;
+    }
+
+    @Test
+    public void assertMatchesBaseline() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<>();
+        Observable.range(0, 1000).subscribe(testSubscriber);
+
+        testSubscriber.assertMatchesBaseline(baseline(1000));
+    }
+
+    @Test
+    public void assertMatchesBaseline_showsBothChains() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<>();
+        Observable.range(0, 1000).subscribe(testSubscriber);
+
+        final List<Notification<Integer>> baseline = baseline(1000);
+        baseline.set(500, Notification.createOnNext(-1));
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertMatchesBaseline(baseline);
+            }
+        },hasMessageThat(allOf(
+                containsString("The events diverged from the baseline at event 500"),
+                containsString("-------> onNext(<500>)"),
+                containsString("\n   baseline: "),
+                containsString("-------> onNext(<-1>)"))));
+    }
+
+    @Test
+    public void assertMatchesBaseline_differentLength() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<>();
+        Observable.range(0, 10).subscribe(testSubscriber);
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertMatchesBaseline(baseline(12));
+            }
+        },hasMessageThat(containsString("The events diverged from the baseline at event 10")));
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertMatchesBaseline(baseline(10).subList(0, 5));
+            }
+        },hasMessageThat(containsString("There were 11 events but the baseline ended after 5")));
+    }
+
+    private static Matcher<Notification> isMultipleOf(final int divisor){
+        return new BaseMatcher<Notification>() {
+            @Override
+            public boolean matches(final Object item) {
+                final Notification notification = (Notification) item;
+                return notification.isOnNext() && (Integer) notification.getValue() % divisor == divisor - 1;
+            }
+
+            @Override
+            public void describeTo(final Description description) {
+                description.appendText("one less than a multiple of " + divisor);
+            }
+        };
+    }
+
+    @Test
+    public void matchInParallel_assertHasEvent() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().matchInParallel().build();
+        Observable.range(0, 100000).subscribe(testSubscriber);
+
+        testSubscriber.assertHasEvent(isValue(77777));
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertHasEvent(isValue(-1));
+            }
+        },hasMessageThat(containsString("There was no matching event in the event chain")));
+    }
+
+    @Test
+    public void matchInParallel_assertDoesNotHaveEventReportsFirstMatch() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().matchInParallel().build();
+        Observable.range(0, 100000).subscribe(testSubscriber);
+
+        for (int i = 0; i < 20; i++) {
+            assertThrows(new ThrowingRunnable() {
+                @Override
+                public void run() throws Throwable {
+                    testSubscriber.assertDoesNotHaveEvent(isMultipleOf(5000));
+                }
+            },hasMessageThat(containsString("-------> onNext(<4999>)")));
+        }
+    }
+
+    private static final Func1<Integer, Integer> MOD_THREE = new Func1<Integer, Integer>() {
+        @Override
+        public Integer call(final Integer value) {
+            return value % 3;
+        }
+    };
+
+    private static final Func2<Integer, Integer, Boolean> INCREASING = new Func2<Integer, Integer, Boolean>() {
+        @Override
+        public Boolean call(final Integer previous, final Integer next) {
+            return previous < next;
+        }
+    };
+
+    @Test
+    public void assertOrderedPerKey() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().checkOrderPerKey(MOD_THREE, INCREASING).build();
+        Observable.range(0, 3000).subscribe(testSubscriber);
+
+        testSubscriber.assertOrderedPerKey();
+    }
+
+    @Test
+    public void assertOrderedPerKey_highlightsFirstViolation() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().checkOrderPerKey(MOD_THREE, INCREASING).build();
+        Observable.just(4, 2, 1, 5, 7, 3, 0).subscribe(testSubscriber);
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertOrderedPerKey();
+            }
+        },hasMessageThat(allOf(
+                containsString("1 followed 4 within key 1 (2 times)"),
+                containsString("-------> onNext(<1>)"))));
+    }
+
+    @Test
+    public void assertOrderedPerKey_countOnly() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>()
+                .countOnly()
+                .checkOrderPerKey(MOD_THREE, INCREASING)
+                .build();
+        Observable.just(3, 6, 0).subscribe(testSubscriber);
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertOrderedPerKey();
+            }
+        },hasMessageThat(containsString("0 followed 6 within key 0 (1 time)")));
+    }
+
+    @Test
+    public void assertOrderedPerKey_reportsKeyThatThrows() throws Throwable {
+        final IllegalArgumentException thrown = new IllegalArgumentException("no key for 5");
+        final Func1<Integer, Integer> key = new Func1<Integer, Integer>() {
+            @Override
+            public Integer call(final Integer value) {
+                if(value == 5){
+                    throw thrown;
+                }
+                return value % 3;
+            }
+        };
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().checkOrderPerKey(key, INCREASING).build();
+        Observable.range(0, 10).subscribe(testSubscriber);
+
+        testSubscriber.beginAssertionChain()
+                .ignoreUntilEvent(isValue(9))
+                .assertNextEvent(isCompletion())
+                .assertNoRemainingEvents();
+        testSubscriber.assertHasEvent(isValue(9));
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertOrderedPerKey();
+            }
+        },allOf(hasMessageThat(allOf(
+                        containsString("The key extractor or ordering threw java.lang.IllegalArgumentException: no key for 5 (1 time)"),
+                        containsString("-------> onNext(<5>)"))),
+                hasCauseThat(sameInstance((Throwable) thrown))));
+    }
+
+    @Test
+    public void whenEvent_completesOnceMatched() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<>();
+        final TestSubscriber<TestSubscriber<Integer>> waiter = new TestSubscriber<>();
+
+        testSubscriber.whenEvent(isValue(5), 1).subscribe(waiter);
+        waiter.assertDoesNotHaveEvent(isCompletion());
+
+        Observable.range(0, 10).subscribe(testSubscriber);
+        waiter.beginAssertionChain()
+              .assertNextEvent(isValue(testSubscriber))
+              .assertNextEvent(isCompletion())
+              .assertNoRemainingEvents();
+    }
+
+    @Test
+    public void whenEvent_countsRecordedEvents() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<>();
+        Observable.range(0, 10).subscribe(testSubscriber);
+
+        final TestSubscriber<TestSubscriber<Integer>> waiter = new TestSubscriber<>();
+        testSubscriber.whenEvent(isValueThat(anything()), 10).subscribe(waiter);
+        waiter.assertHasEvent(isCompletion());
+    }
+
+    @Test
+    public void whenEvent_manyWaitersWithoutThreads() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<>();
+        final List<TestSubscriber<TestSubscriber<Integer>>> waiters = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            final TestSubscriber<TestSubscriber<Integer>> waiter = new TestSubscriber<>();
+            testSubscriber.whenEvent(isValue(i), 1, 1, TimeUnit.MINUTES).subscribe(waiter);
+            waiters.add(waiter);
+        }
+
+        Observable.range(0, 500).subscribeOn(Schedulers.newThread()).subscribe(testSubscriber);
+        for (final TestSubscriber<TestSubscriber<Integer>> waiter : waiters) {
+            waiter.awaitEvent(isCompletion());
+        }
+    }
+
+    @Test
+    public void whenEvent_countOnly() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().countOnly().build();
+        final TestSubscriber<TestSubscriber<Integer>> waiter = new TestSubscriber<>();
+
+        testSubscriber.whenEvent(isValueThat(anything()), 3).subscribe(waiter);
+        Observable.range(0, 2).subscribe(testSubscriber);
+        waiter.assertDoesNotHaveEvent(isCompletion());
+        testSubscriber.onNext(2);
+        waiter.assertHasEvent(isCompletion());
+    }
+
+    @Test
+    public void whenEvent_timesOut() throws Throwable {
+        final TestScheduler scheduler = new TestScheduler();
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().useVirtualTime(scheduler).build();
+        final TestSubscriber<TestSubscriber<Integer>> waiter = new TestSubscriber<>();
+
+        Observable.<Integer>never().subscribe(testSubscriber);
+        testSubscriber.whenEvent(isValue(1), 1, 100, TimeUnit.MILLISECONDS).subscribe(waiter);
+
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        waiter.assertHasEvent(isErrorThat(hasMessageThat(containsString("Timed out waiting for event"))));
+    }
+
+    @Test
+    public void whenEvent_timesOutInVirtualTime() throws Throwable {
+        final TestScheduler scheduler = new TestScheduler();
+        final TestSubscriber<Long> testSubscriber = new TestSubscriberBuilder<Long>().useVirtualTime(scheduler).build();
+        final TestSubscriber<TestSubscriber<Long>> waiter = new TestSubscriber<>();
+
+        Observable.timer(10, TimeUnit.SECONDS, scheduler).subscribe(testSubscriber);
+        testSubscriber.whenEvent(isCompletion(), 1, 5, TimeUnit.SECONDS).subscribe(waiter);
+
+        scheduler.advanceTimeBy(4, TimeUnit.SECONDS);
+        waiter.assertDoesNotHaveEvent(isError(Throwable.class));
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        waiter.assertHasEvent(isErrorThat(hasMessageThat(containsString("Timed out waiting for event"))));
+    }
+
+    private static final Func1<Integer, Integer> AS_NUMBER = new Func1<Integer, Integer>() {
+        @Override
+        public Integer call(final Integer value) {
+            return value;
+        }
+    };
+
+    @Test
+    public void valueStatistics() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().countOnly().aggregateValues(AS_NUMBER).build();
+        Observable.range(1, 100).subscribe(testSubscriber);
+
+        final ValueStatistics statistics = testSubscriber.getValueStatistics();
+        assertEquals(100, statistics.getCount());
+        assertEquals(5050, statistics.getSum(), 0);
+        assertEquals(50.5, statistics.getMean(), 0);
+        assertEquals(1, statistics.getMin(), 0);
+        assertEquals(100, statistics.getMax(), 0);
+
+        testSubscriber.assertValueSum(5050, 0);
+        testSubscriber.assertMeanValue(50.5, 0.01);
+        testSubscriber.assertValuesWithin(1, 100);
+    }
+
+    @Test
+    public void valueStatistics_concurrentProducers() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().countOnly().aggregateValues(AS_NUMBER).build();
+        final Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            final int first = t * 1000;
+            producers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        testSubscriber.onNext(first + i);
+                    }
+                }
+            });
+            producers[t].start();
+        }
+        for (final Thread producer : producers) {
+            producer.join();
+        }
+
+        final ValueStatistics statistics = testSubscriber.getValueStatistics();
+        assertEquals(4000, statistics.getCount());
+        assertEquals(7998000, statistics.getSum(), 0);
+        assertEquals(0, statistics.getMin(), 0);
+        assertEquals(3999, statistics.getMax(), 0);
+    }
+
+    @Test
+    public void valueStatistics_reportsNumericViewThatThrows() throws Throwable {
+        final IllegalArgumentException thrown = new IllegalArgumentException("no number for 5");
+        final Func1<Integer, Integer> toNumber = new Func1<Integer, Integer>() {
+            @Override
+            public Integer call(final Integer value) {
+                if(value == 5){
+                    throw thrown;
+                }
+                return value;
+            }
+        };
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().aggregateValues(toNumber).build();
+        Observable.range(0, 10).subscribe(testSubscriber);
+
+        testSubscriber.assertHasEvent(isValue(9));
+        testSubscriber.assertHasEvent(isCompletion());
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertValueSum(40, 0);
+            }
+        },allOf(hasMessageThat(allOf(
+                        containsString("The numeric view or hash code of a value threw java.lang.IllegalArgumentException: no number for 5 (1 time)"),
+                        containsString("-------> onNext(<5>)"))),
+                hasCauseThat(sameInstance((Throwable) thrown))));
+    }
+
+    @Test
+    public void assertValueSum_fails() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().aggregateValues(AS_NUMBER).build();
+        Observable.just(1, 2, 3).subscribe(testSubscriber);
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertValueSum(7, 0.5);
+            }
+        },hasMessageThat(containsString("The values summed to 6.0 over 3 values")));
+    }
+
+    @Test
+    public void assertValuesWithin_highlightsLargestValue() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().aggregateValues(AS_NUMBER).build();
+        Observable.just(3, 9, 4, 9).subscribe(testSubscriber);
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertValuesWithin(0, 5);
+            }
+        },hasMessageThat(allOf(
+                containsString("The largest value was 9.0"),
+                containsString("-------> onNext(<9>)\n             onNext(<4>)"))));
+    }
+
+    @Test
+    public void aggregates_requireBuilderOption() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<>();
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertNoDuplicateValues();
+            }
+        },hasMessageThat(containsString("use TestSubscriberBuilder.detectDuplicates")));
+    }
+
+    @Test
+    public void assertDistinctValues() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().countOnly().estimateDistinct().build();
+        Observable.range(0, 100000).concatWith(Observable.range(0, 50000)).subscribe(testSubscriber);
+
+        testSubscriber.assertDistinctValues(100000, 0.03);
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertDistinctValues(150000, 0.03);
+            }
+        },hasMessageThat(containsString("About 150000 distinct values (within 3.0%)")));
+    }
+
+    @Test
+    public void assertNoDuplicateValues() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>().detectDuplicates(10000).build();
+        Observable.range(0, 10000).subscribe(testSubscriber);
+
+        testSubscriber.assertNoDuplicateValues();
+    }
+
+    @Test
+    public void assertNoDuplicateValues_highlightsFirstRepeat() throws Throwable {
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().detectDuplicates(100).build();
+        Observable.just("a", "b", null, "c", "b", null, "b").subscribe(testSubscriber);
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertNoDuplicateValues();
+            }
+        },hasMessageThat(allOf(
+                containsString("The value was already received at event 1 (3 duplicates)"),
+                containsString("-------> onNext(\"b\")\n             onNext(null)"))));
+    }
+
+    @Test
+    public void detectDuplicates_requiresEveryEvent() throws Throwable {
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                new TestSubscriberBuilder<Integer>().retainLast(10).detectDuplicates(100).build();
+            }
+        },hasMessageThat(containsString("detectDuplicates can not be combined")));
+    }
+
+    @Test
+    public void assertUniformHistogram() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>()
+                .aggregateValues(AS_NUMBER)
+                .histogram(0, 100, 10)
+                .build();
+        Observable.range(0, 1000).map(new Func1<Integer, Integer>() {
+            @Override
+            public Integer call(final Integer value) {
+                return value % 100;
+            }
+        }).subscribe(testSubscriber);
+
+        testSubscriber.assertUniformHistogram(0.01);
+        testSubscriber.onNext(5);
+        testSubscriber.onNext(-20);
+        testSubscriber.onNext(150);
+        assertEquals(102, testSubscriber.getHistogram()[0]);
+        assertEquals(101, testSubscriber.getHistogram()[9]);
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertUniformHistogram(0.01);
+            }
+        },hasMessageThat(allOf(
+                containsString("Bucket 0 [0.0, 10.0) held 102 values, 1.7% from the mean of 100.3"),
+                containsString("histogram: [102, 100, 100, 100, 100, 100, 100, 100, 100, 101]"))));
+    }
+
+    /**
+     * Schedules an onNext of each time in milliseconds from the start up to the end, holding the time as its value
+     */
+    private static void emitEvery(final TestScheduler scheduler, final TestSubscriber<Long> testSubscriber, final long start, final long end, final long period){
+        final Scheduler.Worker worker = scheduler.createWorker();
+        for(long time = start; time < end; time += period){
+            final long value = time;
+            worker.schedule(new Action0() {
+                @Override
+                public void call() {
+                    testSubscriber.onNext(value);
+                }
+            }, time, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static TestSubscriber<Long> rateTracked(final TestScheduler scheduler){
+        return new TestSubscriberBuilder<Long>()
+                .useVirtualTime(scheduler)
+                .trackRate(100, TimeUnit.MILLISECONDS, 20)
+                .build();
+    }
+
+    @Test
+    public void awaitRate() throws Throwable {
+        final TestScheduler scheduler = new TestScheduler();
+        final TestSubscriber<Long> testSubscriber = rateTracked(scheduler);
+        emitEvery(scheduler, testSubscriber, 0, 2000, 10);
+
+        testSubscriber.awaitRate(90, 500, TimeUnit.MILLISECONDS);
+        assertEquals(500, scheduler.now());
+    }
+
+    @Test
+    public void awaitRate_timesOutWithTimeline() throws Throwable {
+        final TestScheduler scheduler = new TestScheduler();
+        final TestSubscriber<Long> testSubscriber = rateTracked(scheduler);
+        emitEvery(scheduler, testSubscriber, 0, 2000, 20);
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.awaitRate(100, 200, TimeUnit.MILLISECONDS, 1, TimeUnit.SECONDS);
+            }
+        },hasMessageThat(allOf(
+                containsString("At least 100.0 events/s over 200.000ms"),
+                containsString("Timed out waiting for the rate, the most recent rate was 50.0 events/s"),
+                containsString("rate: events/s per 100.000ms from +0.000ms [50, 50, 50, 50, 50, 50, 50, 50, 50, 50]"))));
+    }
+
+    @Test
+    public void awaitRate_failsOnceEnded() throws Throwable {
+        final TestScheduler scheduler = new TestScheduler();
+        final TestSubscriber<Long> testSubscriber = rateTracked(scheduler);
+        emitEvery(scheduler, testSubscriber, 0, 300, 10);
+        scheduler.createWorker().schedule(new Action0() {
+            @Override
+            public void call() {
+                testSubscriber.onCompleted();
+            }
+        }, 300, TimeUnit.MILLISECONDS);
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.awaitRate(100, 500, TimeUnit.MILLISECONDS);
+            }
+        },hasMessageThat(containsString("The Observable ended, only 300.000ms of complete slices were recorded")));
+        assertEquals(300, scheduler.now());
+    }
+
+    @Test
+    public void assertSustainedThroughput() throws Throwable {
+        final TestScheduler scheduler = new TestScheduler();
+        final TestSubscriber<Long> testSubscriber = rateTracked(scheduler);
+        emitEvery(scheduler, testSubscriber, 0, 400, 10);
+        emitEvery(scheduler, testSubscriber, 600, 1000, 10);
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        testSubscriber.onCompleted();
+
+        testSubscriber.assertSustainedThroughput(50, 1, TimeUnit.SECONDS);
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertSustainedThroughput(50, 200, TimeUnit.MILLISECONDS);
+            }
+        },hasMessageThat(allOf(
+                containsString("The rate fell to 0.0 events/s in the window from +400.000ms"),
+                containsString("rate: events/s per 100.000ms from +0.000ms [100, 100, 100, 100, 0, 0]"))));
+    }
+
+    @Test
+    public void assertNoStallLongerThan() throws Throwable {
+        final TestScheduler scheduler = new TestScheduler();
+        final TestSubscriber<Long> testSubscriber = rateTracked(scheduler);
+        emitEvery(scheduler, testSubscriber, 0, 400, 10);
+        emitEvery(scheduler, testSubscriber, 600, 1000, 10);
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        testSubscriber.assertNoStallLongerThan(250, TimeUnit.MILLISECONDS);
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertNoStallLongerThan(200, TimeUnit.MILLISECONDS);
+            }
+        },hasMessageThat(allOf(
+                containsString("There was a gap of 210.000ms before the event"),
+                containsString("-------> onNext(<600L>)"))));
+
+        scheduler.advanceTimeBy(300, TimeUnit.MILLISECONDS);
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertNoStallLongerThan(250, TimeUnit.MILLISECONDS);
+            }
+        },hasMessageThat(containsString("There has been no event for 310.000ms since the last event")));
+    }
+
+    @Test
+    public void trackRate_concurrentProducers() throws Throwable {
+        // Only the first events race to set the origin, so every run starts its producers together
+        for (int run = 0; run < 200; run++) {
+            final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>()
+                    .countOnly()
+                    .trackRate(1, TimeUnit.MICROSECONDS, 1000)
+                    .build();
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            final Thread[] producers = new Thread[4];
+            for (int t = 0; t < producers.length; t++) {
+                producers[t] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                            for (int i = 0; i < 10; i++) {
+                                testSubscriber.onNext(i);
+                            }
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }
+                });
+                producers[t].start();
+            }
+            start.countDown();
+            for (final Thread producer : producers) {
+                producer.join();
+            }
+
+            assertEquals(null, failure.get());
+            assertEquals(40, testSubscriber.getEventCount(Notification.Kind.OnNext));
+        }
+    }
+
+    @Test
+    public void rates_requireTrackRate() throws Throwable {
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriber<>();
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.assertNoStallLongerThan(1, TimeUnit.SECONDS);
+            }
+        },hasMessageThat(containsString("use TestSubscriberBuilder.trackRate")));
+    }
+}
@@ -0,0 +1,205 @@
+package com.rxc;
+
+import org.junit.Test;
+import rx.Notification;
+import rx.Observable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static com.rxc.MoreAssertions.assertThrows;
+import static com.rxc.matchers.NotificationMatchers.*;
+import static com.rxc.matchers.ThrowableMatchers.hasMessageThat;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertEquals;
+
+public class TraceReaderTest {
+
+    private static Path traceFile() throws IOException {
+        final Path path = Files.createTempFile("trace", ".rxct");
+        path.toFile().deleteOnExit();
+        return path;
+    }
+
+    @Test
+    public void replay_assertionChain() throws Exception {
+        final Path path = traceFile();
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().traceTo(path, ValueCodecs.strings()).build();
+        Observable.just("one","two","three").subscribe(testSubscriber);
+        testSubscriber.closeTrace();
+
+        try (TraceReader<String> reader = TraceReader.open(path, ValueCodecs.strings())) {
+            assertEquals(4, reader.size());
+
+            final TestSubscriber<String> replayed = TestSubscriber.replay(reader);
+            replayed.beginAssertionChain()
+                    .assertNextEvent(isValue("one"))
+                    .assertNextEvent(isValue("two"))
+                    .assertNextEvent(isValue("three"))
+                    .assertNextEvent(isCompletion())
+                    .assertNoRemainingEvents();
+            replayed.assertHasEvent(isValue("two"));
+            replayed.assertDoesNotHaveEvent(isValue("four"));
+            replayed.assertWellBehaved();
+            assertEquals(3, replayed.getEventCount(Notification.Kind.OnNext));
+        }
+    }
+
+    @Test
+    public void replay_error() throws Exception {
+        final Path path = traceFile();
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().traceTo(path, ValueCodecs.strings()).build();
+        Observable.<String>error(new IllegalStateException("broken")).subscribe(testSubscriber);
+        testSubscriber.closeTrace();
+
+        try (TraceReader<String> reader = TraceReader.open(path, ValueCodecs.strings())) {
+            TestSubscriber.replay(reader).assertHasEvent(isError(IllegalStateException.class));
+            assertEquals("broken", reader.get(0).getThrowable().getMessage());
+        }
+    }
+
+    @Test
+    public void replay_highlightsMismatch() throws Exception {
+        final Path path = traceFile();
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().traceTo(path, ValueCodecs.strings()).build();
+        Observable.just("one","two").subscribe(testSubscriber);
+        testSubscriber.closeTrace();
+
+        try (TraceReader<String> reader = TraceReader.open(path, ValueCodecs.strings())) {
+            final TestSubscriber<String> replayed = TestSubscriber.replay(reader);
+            assertThrows(new ThrowingRunnable() {
+                @Override
+                public void run() {
+                    replayed.beginAssertionChain()
+                            .assertNextEvent(isValue("one"))
+                            .assertNextEvent(isValue("glork"));
+                }
+            }, hasMessageThat(containsString("-------> onNext(\"two\")")));
+            assertThrows(new ThrowingRunnable() {
+                @Override
+                public void run() throws Throwable {
+                    replayed.awaitEvent(isValue("glork"));
+                }
+            }, hasMessageThat(containsString("There were not enough matching events in the replayed trace")));
+        }
+    }
+
+    @Test
+    public void trace_keepsEventsThatAreOnlyCounted() throws Exception {
+        final Path path = traceFile();
+        final TestSubscriber<Integer> testSubscriber = new TestSubscriberBuilder<Integer>()
+                .countOnly()
+                .traceTo(path, ValueCodecs.integers())
+                .build();
+        Observable.range(0, 5000).subscribe(testSubscriber);
+        testSubscriber.closeTrace();
+
+        try (TraceReader<Integer> reader = TraceReader.open(path, ValueCodecs.integers())) {
+            assertEquals(5001, reader.size());
+            assertEquals(Integer.valueOf(4321), reader.get(4321).getValue());
+            assertEquals(Integer.valueOf(17), reader.get(17).getValue());
+            for (int i = 0; i < 5000; i++) {
+                assertEquals(Integer.valueOf(i), reader.get(i).getValue());
+            }
+            assertEquals(Notification.Kind.OnCompleted, reader.get(5000).getKind());
+
+            TestSubscriber.replay(reader)
+                    .beginAssertionChain()
+                    .ignoreUntilEvent(isValue(4998))
+                    .assertNextEvent(isValue(4999))
+                    .assertNextEvent(isCompletion());
+        }
+    }
+
+    @Test
+    public void trace_reportsValuesThatCanNotBeEncoded() throws Exception {
+        final Path path = traceFile();
+        final ValueCodec<String> codec = new ValueCodec<String>() {
+            @Override
+            public byte[] encode(final String value) {
+                if(value.equals("two")){
+                    throw new IllegalArgumentException("can not encode two");
+                }
+                return ValueCodecs.strings().encode(value);
+            }
+
+            @Override
+            public String decode(final ByteBuffer bytes) {
+                return ValueCodecs.strings().decode(bytes);
+            }
+        };
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().traceTo(path, codec).build();
+        Observable.just("one","two","three").subscribe(testSubscriber);
+
+        testSubscriber.assertHasEvent(isCompletion());
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                testSubscriber.closeTrace();
+            }
+        }, hasMessageThat(containsString("The value of event 1 could not be encoded")));
+
+        try (TraceReader<String> reader = TraceReader.open(path, ValueCodecs.strings())) {
+            assertEquals(4, reader.size());
+            assertEquals("one", reader.get(0).getValue());
+            assertEquals(null, reader.get(1).getValue());
+            assertEquals("three", reader.get(2).getValue());
+            assertEquals(Notification.Kind.OnCompleted, reader.get(3).getKind());
+        }
+    }
+
+    @Test
+    public void open_truncatedTrace() throws Exception {
+        final Path path = traceFile();
+        final TestSubscriber<String> testSubscriber = new TestSubscriberBuilder<String>().traceTo(path, ValueCodecs.strings()).build();
+        Observable.just("one","two").subscribe(testSubscriber);
+        testSubscriber.closeTrace();
+
+        final byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 3));
+
+        try (TraceReader<String> reader = TraceReader.open(path, ValueCodecs.strings())) {
+            assertEquals(2, reader.size());
+            assertEquals("two", reader.get(1).getValue());
+        }
+    }
+
+    @Test
+    public void open_notATrace() throws Exception {
+        final Path path = traceFile();
+        Files.write(path, "hello there".getBytes("UTF-8"));
+
+        assertThrows(new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                TraceReader.open(path, ValueCodecs.strings());
+            }
+        }, hasMessageThat(containsString("Not a trace file")));
+    }
+
+    @Test
+    public void assertMatchesBaseline_trace() throws Exception {
+        final Path path = traceFile();
+        final TestSubscriber<String> golden = new TestSubscriberBuilder<String>().traceTo(path, ValueCodecs.strings()).build();
+        Observable.just("one","two").concatWith(Observable.<String>error(new IllegalStateException("broken"))).subscribe(golden);
+        golden.closeTrace();
+
+        try (TraceReader<String> reader = TraceReader.open(path, ValueCodecs.strings())) {
+            final TestSubscriber<String> same = new TestSubscriber<>();
+            Observable.just("one","two").concatWith(Observable.<String>error(new IllegalStateException("broken"))).subscribe(same);
+            same.assertMatchesBaseline(reader);
+
+            final TestSubscriber<String> different = new TestSubscriber<>();
+            Observable.just("one","three").subscribe(different);
+            assertThrows(new ThrowingRunnable() {
+                @Override
+                public void run() {
+                    different.assertMatchesBaseline(reader);
+                }
+            }, hasMessageThat(containsString("The events diverged from the baseline at event 1")));
+        }
+    }
+}
@@ -19,4 +19,9 @@ public class OnCompletedMatcherTest {
         assertThat(Notification.createOnCompleted(),not(new OnNextMatcher(containsString("fred"))));
         assertThat(Notification.createOnError(new Exception()),not(new OnNextMatcher(anything())));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testKind() throws Exception {
+        assertEquals(Notification.Kind.OnCompleted, new OnCompletedMatcher().getKind());
+    }
+}
@@ -0,0 +1,28 @@
+package com.rxc.matchers;
+
+import org.junit.Test;
+import rx.Notification;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class OnErrorClassMatcherTest {
+    @Test
+    public void testMatches() throws Exception {
+        assertThat(Notification.createOnError(new IOException()),new OnErrorClassMatcher(IOException.class));
+        assertThat(Notification.createOnError(new IOException()),new OnErrorClassMatcher(Exception.class));
+    }
+
+    @Test
+    public void testNoMatch_otherClass() throws Exception {
+        assertThat(Notification.createOnError(new Exception()),not(new OnErrorClassMatcher(IOException.class)));
+    }
+
+    @Test
+    public void testNoMatch_notOnError() throws Exception {
+        assertThat(Notification.createOnCompleted(),not(new OnErrorClassMatcher(Throwable.class)));
+        assertThat(Notification.createOnNext(new Object()),not(new OnErrorClassMatcher(Throwable.class)));
+    }
+}
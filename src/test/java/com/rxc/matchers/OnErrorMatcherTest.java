@@ -6,6 +6,7 @@ import rx.Notification;
 import static org.hamcrest.CoreMatchers.isA;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
 
 public class OnErrorMatcherTest {
     @Test
@@ -23,4 +24,10 @@ public class OnErrorMatcherTest {
         assertThat(Notification.createOnCompleted(),not(new OnNextMatcher(isA(Throwable.class))));
         assertThat(Notification.createOnNext(new Object()),not(new OnNextMatcher(isA(Throwable.class))));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testKind() throws Exception {
+        assertEquals(Notification.Kind.OnError, new OnErrorMatcher(isA(Throwable.class)).getKind());
+        assertEquals(Notification.Kind.OnError, new OnErrorClassMatcher(Exception.class).getKind());
+    }
+}
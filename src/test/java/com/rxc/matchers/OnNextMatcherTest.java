@@ -1,10 +1,13 @@
 package com.rxc.matchers;
 
+import org.hamcrest.Description;
+import org.hamcrest.StringDescription;
 import org.junit.Test;
 import rx.Notification;
 
 import static org.hamcrest.CoreMatchers.anything;
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.*;
 
@@ -26,4 +29,38 @@ public class OnNextMatcherTest{
         assertThat(Notification.createOnCompleted(),not(new OnNextMatcher(containsString("fred"))));
         assertThat(Notification.createOnError(new Exception()),not(new OnNextMatcher(anything())));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testNoMatch_notANotification() throws Exception {
+        assertFalse(new OnNextMatcher(anything()).matches("hello"));
+        assertFalse(new OnNextMatcher(anything()).matches(null));
+    }
+
+    @Test
+    public void testKind() throws Exception {
+        assertEquals(Notification.Kind.OnNext, new OnNextMatcher(anything()).getKind());
+        assertEquals(Notification.Kind.OnNext, new OnNextValueMatcher("fred").getKind());
+    }
+
+    @Test
+    public void testSubclass() throws Exception {
+        final OnNextMatcher matcher = new OnNextMatcher(containsString("fred")) {
+            @Override
+            protected void describeMismatchSafely(final Notification item, final Description mismatchDescription) {
+                mismatchDescription.appendText("not fred");
+            }
+        };
+        final StringDescription description = new StringDescription();
+        matcher.describeMismatch(Notification.createOnNext("george"), description);
+
+        assertThat(Notification.createOnNext("fred"), matcher);
+        assertThat(description.toString(), equalTo("not fred"));
+    }
+
+    @Test
+    public void testDescribeMismatch() throws Exception {
+        final StringDescription description = new StringDescription();
+        new OnNextMatcher(containsString("fred")).describeMismatch(Notification.createOnCompleted(), description);
+        assertThat(description.toString(), equalTo("was onCompleted()"));
+    }
+}
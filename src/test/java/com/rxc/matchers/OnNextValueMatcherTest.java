@@ -0,0 +1,27 @@
+package com.rxc.matchers;
+
+import org.junit.Test;
+import rx.Notification;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.*;
+
+public class OnNextValueMatcherTest {
+
+    @Test
+    public void testMatches() throws Exception {
+        assertThat(Notification.createOnNext("glork"),new OnNextValueMatcher("glork"));
+        assertThat(Notification.createOnNext(null),new OnNextValueMatcher(null));
+    }
+
+    @Test
+    public void testNoMatch_notEqual() throws Exception {
+        assertThat(Notification.createOnNext("I am glork"),not(new OnNextValueMatcher("fred")));
+    }
+
+    @Test
+    public void testNoMatch_notOnNext() throws Exception {
+        assertThat(Notification.createOnCompleted(),not(new OnNextValueMatcher("fred")));
+        assertThat(Notification.createOnError(new Exception()),not(new OnNextValueMatcher("fred")));
+    }
+}